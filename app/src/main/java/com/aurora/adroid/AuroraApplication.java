@@ -29,6 +29,7 @@ import com.aurora.adroid.event.Event;
 import com.aurora.adroid.event.RxBus;
 import com.aurora.adroid.model.App;
 import com.aurora.adroid.receiver.PackageManagerReceiver;
+import com.aurora.adroid.receiver.UpdatesReceiver;
 import com.aurora.adroid.util.Log;
 import com.aurora.adroid.util.PackageUtil;
 import com.aurora.adroid.util.Util;
@@ -119,6 +120,9 @@ public class AuroraApplication extends Application {
         //Check & start notification service
         Util.startNotificationService(this);
 
+        //Reschedule periodic syncs, an identical pending job is left as it is
+        UpdatesReceiver.setUpdatesInterval(this, Util.getUpdatesInterval(this));
+
         //Global RX-Error handler, just simply logs, I make sure all errors are handled at origin.
         RxJavaPlugins.setErrorHandler(throwable -> {
             Log.e(throwable.getMessage());
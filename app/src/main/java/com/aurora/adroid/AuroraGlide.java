@@ -25,7 +25,7 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
-import com.aurora.adroid.util.Util;
+import com.aurora.adroid.manager.HttpClientManager;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.Registry;
@@ -60,13 +60,6 @@ public class AuroraGlide extends AppGlideModule {
                 .skipMemoryCache(false);
     }
 
-    private static OkHttpClient getOkHttpClient(Context context) {
-        final OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        if (Util.isNetworkProxyEnabled(context))
-            builder.proxy(Util.getNetworkProxy(context));
-        return builder.build();
-    }
-
     @Override
     public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
         int memoryCacheSizeBytes = 1024 * 1024 * 50;
@@ -78,7 +71,7 @@ public class AuroraGlide extends AppGlideModule {
 
     @Override
     public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
-        final OkHttpClient okHttpClient = getOkHttpClient(context);
+        final OkHttpClient okHttpClient = HttpClientManager.getImageClient(context);
         final OkHttpUrlLoader.Factory okHttpUrlLoader = new OkHttpUrlLoader.Factory(okHttpClient);
         registry.replace(GlideUrl.class, InputStream.class, okHttpUrlLoader);
     }
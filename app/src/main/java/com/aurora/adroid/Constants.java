@@ -26,9 +26,12 @@ public class Constants {
     public static final String IMG_URL_PREFIX = "/icons-320/";
     public static final String SIGNED_FILE_NAME = "index-v1.jar";
     public static final String DATA_FILE_NAME = "index-v1.json";
+    public static final String ENTRY_SIGNED_FILE_NAME = "entry.jar";
+    public static final String ENTRY_DATA_FILE_NAME = "entry.json";
     public static final String REPO_AVAILABLE = "REPO_AVAILABLE";
     public static final String DATABASE_AVAILABLE = "DATABASE_AVAILABLE";
     public static final String DATABASE_DATE = "DATABASE_DATE";
+    public static final String CATALOG_PENDING = "CATALOG_PENDING";
 
     public static final String JAR = "jar";
     public static final String JSON = ".json";
@@ -48,6 +51,8 @@ public class Constants {
     public static final String PREFERENCE_FAVOURITE_APPS = "PREFERENCE_FAVOURITE_APPS";
     public static final String PREFERENCE_REPO_MAP = "PREFERENCE_REPO_MAP";
     public static final String PREFERENCE_SYNC_MAP = "PREFERENCE_SYNC_MAP";
+    public static final String PREFERENCE_SYNC_REPORTS = "PREFERENCE_SYNC_REPORTS";
+    public static final String PREFERENCE_SYNC_CHECKPOINTS = "PREFERENCE_SYNC_CHECKPOINTS";
     public static final String PREFERENCE_DEFAULT_REPO_MAP = "PREFERENCE_DEFAULT_REPO_MAP";
     public static final String PREFERENCE_INCLUDE_SYSTEM = "PREFERENCE_INCLUDE_SYSTEM";
     public static final String PREFERENCE_INSTALLATION_AUTO = "PREFERENCE_INSTALLATION_AUTO";
@@ -59,6 +64,8 @@ public class Constants {
     public static final String PREFERENCE_UPDATES_INTERVAL = "PREFERENCE_UPDATES_INTERVAL";
     public static final String PREFERENCE_UPDATES_SUGGESTED = "PREFERENCE_UPDATES_SUGGESTED";
     public static final String PREFERENCE_UPDATES_EXPERIMENTAL = "PREFERENCE_UPDATES_EXPERIMENTAL";
+    public static final String PREFERENCE_UPDATES_CHARGING = "PREFERENCE_UPDATES_CHARGING";
+    public static final String PREFERENCE_UPDATES_IDLE = "PREFERENCE_UPDATES_IDLE";
     public static final String PREFERENCE_UI_THEME_2 = "PREFERENCE_UI_THEME_2";
     public static final String PREFERENCE_UI_TRANSPARENT = "PREFERENCE_UI_TRANSPARENT";
     public static final String PREFERENCE_DOWNLOAD_DIRECTORY = "PREFERENCE_DOWNLOAD_DIRECTORY";
@@ -66,13 +73,21 @@ public class Constants {
     public static final String PREFERENCE_DOWNLOAD_WIFI = "PREFERENCE_DOWNLOAD_WIFI";
     public static final String PREFERENCE_DOWNLOAD_ACTIVE = "PREFERENCE_DOWNLOAD_ACTIVE";
     public static final String PREFERENCE_DOWNLOAD_DEBUG = "PREFERENCE_DOWNLOAD_DEBUG";
+    public static final String PREFERENCE_DOWNLOAD_KEEP_INDEX = "PREFERENCE_DOWNLOAD_KEEP_INDEX";
     public static final String PREFERENCE_DOWNLOAD_STRATEGY = "PREFERENCE_DOWNLOAD_STRATEGY";
     public static final String PREFERENCE_ENABLE_PROXY = "PREFERENCE_ENABLE_PROXY";
     public static final String PREFERENCE_PROXY_HOST = "PREFERENCE_PROXY_HOST";
     public static final String PREFERENCE_PROXY_PORT = "PREFERENCE_PROXY_PORT";
     public static final String PREFERENCE_PROXY_TYPE = "PREFERENCE_PROXY_TYPE";
     public static final String PREFERENCE_REPO_UPDATE_INTERVAL = "PREFERENCE_REPO_UPDATE_INTERVAL";
+    public static final String PREFERENCE_SYNC_PIPELINED = "PREFERENCE_SYNC_PIPELINED";
+    public static final String PREFERENCE_SYNC_HEDGED = "PREFERENCE_SYNC_HEDGED";
+    public static final String PREFERENCE_SYNC_SHADOW = "PREFERENCE_SYNC_SHADOW";
+    public static final String PREFERENCE_SYNC_METERED_DEFER = "PREFERENCE_SYNC_METERED_DEFER";
+    public static final String PREFERENCE_SYNC_CHECK_PARALLELISM = "PREFERENCE_SYNC_CHECK_PARALLELISM";
+    public static final String PREFERENCE_SYNC_INDEX_V2 = "PREFERENCE_SYNC_INDEX_V2";
     public static final String PREFERENCE_MIRROR_CHECKED = "PREFERENCE_MIRROR_CHECKED";
+    public static final String PREFERENCE_MIRROR_SCORES = "PREFERENCE_MIRROR_SCORES";
     public static final String PREFERENCE_LAUNCH_SERVICES = "PREFERENCE_LAUNCH_SERVICES";
     public static final String PREFERENCE_LOCALE_CUSTOM = "PREFERENCE_LOCALE_CUSTOM";
     public static final String PREFERENCE_LOCALE_LANG = "PREFERENCE_LOCALE_LANG";
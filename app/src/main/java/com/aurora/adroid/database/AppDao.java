@@ -56,6 +56,9 @@ public interface AppDao {
     @Query("SELECT * FROM app WHERE packageName = :packageName and repoName =:repoName")
     App getAppByPackageNameAndRepo(String packageName, String repoName);
 
+    @Query("SELECT * FROM app WHERE packageName = :packageName and repoId =:repoId")
+    App getAppByPackageNameAndRepoId(String packageName, String repoId);
+
     @Query("SELECT * FROM app WHERE name = :appName")
     LiveData<App> getAppByName(String appName);
 
@@ -86,6 +89,14 @@ public interface AppDao {
     @Query("DELETE FROM app WHERE repoId =:repoID")
     void clearRepo(String repoID);
 
+    @Query("SELECT packageName, lastUpdated, contentHash FROM app WHERE repoId =:repoId AND packageName IN (:packageNames)")
+    List<RowDigest> getDigests(String repoId, List<String> packageNames);
+
+    @Query("SELECT * FROM app WHERE repoId =:repoId AND packageName IN (:packageNames)")
+    List<App> getApps(String repoId, List<String> packageNames);
+
+    @Query("DELETE FROM app WHERE repoId =:repoId AND packageName IN (:packageNames)")
+    int delete(String repoId, List<String> packageNames);
 
     @Query("SELECT EXISTS(SELECT * FROM app WHERE packageName =:packageName)")
     boolean isAvailable(String packageName);
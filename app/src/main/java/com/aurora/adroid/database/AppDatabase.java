@@ -28,23 +28,29 @@ import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.aurora.adroid.Constants;
 import com.aurora.adroid.model.App;
 import com.aurora.adroid.model.v2.AppPackage;
 import com.aurora.adroid.model.v2.Repo;
+import com.aurora.adroid.util.DatabaseUtil;
 import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.PrefUtil;
 
-@Database(entities = {App.class, AppPackage.class, Repo.class}, version = 3, exportSchema = false)
+@Database(entities = {App.class, AppPackage.class, Repo.class}, version = 6, exportSchema = false)
 @TypeConverters(DatabaseConverter.class)
 public abstract class AppDatabase extends RoomDatabase {
 
     private static final String DATABASE_NAME = "AuroraDroid_2";
+    private static final String STAGING_DATABASE_NAME = "AuroraDroid_2_staging";
+    static final String[] TABLES = {"app", "app_package", "repo"};
     private static AppDatabase instance;
 
     public static synchronized AppDatabase getDatabase(Context context) {
         if (instance == null) {
             synchronized (AppDatabase.class) {
                 if (instance == null) {
-                    instance = Room.databaseBuilder(context.getApplicationContext(), AppDatabase.class, AppDatabase.DATABASE_NAME)
+                    final Context appContext = context.getApplicationContext();
+                    instance = Room.databaseBuilder(appContext, AppDatabase.class, AppDatabase.DATABASE_NAME)
                             .fallbackToDestructiveMigration()
                             .addCallback(new Callback() {
                                 @Override
@@ -56,6 +62,10 @@ public abstract class AppDatabase extends RoomDatabase {
                                 @Override
                                 public void onDestructiveMigration(@NonNull SupportSQLiteDatabase db) {
                                     super.onDestructiveMigration(db);
+                                    //Tables are gone, drop cached validators & sync state so repos get fetched again
+                                    PrefUtil.putString(appContext, Constants.PREFERENCE_REPO_HEADER_MAP, "");
+                                    PrefUtil.putString(appContext, Constants.PREFERENCE_SYNC_MAP, "");
+                                    DatabaseUtil.setDatabaseAvailable(appContext, false);
                                     Log.i("DB migrated to new version, old purged");
                                 }
                             })
@@ -66,6 +76,24 @@ public abstract class AppDatabase extends RoomDatabase {
         return instance;
     }
 
+    /**
+     * Opens an empty staging database, imports write their batches there and move
+     * a repo into the catalog only once all of it is in, see {@link IndexWriter}.
+     */
+    public static AppDatabase createStagingDatabase(Context context) {
+        final Context appContext = context.getApplicationContext();
+        appContext.deleteDatabase(STAGING_DATABASE_NAME);
+        return Room.databaseBuilder(appContext, AppDatabase.class, STAGING_DATABASE_NAME)
+                .setJournalMode(JournalMode.TRUNCATE)
+                .fallbackToDestructiveMigration()
+                .build();
+    }
+
+    public static void discardStagingDatabase(Context context, AppDatabase stagingDatabase) {
+        stagingDatabase.close();
+        context.getApplicationContext().deleteDatabase(STAGING_DATABASE_NAME);
+    }
+
     public static void destroyInstance() {
         if (instance != null) {
             instance.close();
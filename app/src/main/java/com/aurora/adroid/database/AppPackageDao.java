@@ -49,6 +49,15 @@ public interface AppPackageDao {
     @Query("DELETE FROM APP_PACKAGE WHERE repoId =:repoId")
     void clear(String repoId);
 
+    @Query("SELECT packageName, NULL AS lastUpdated, contentHash FROM APP_PACKAGE WHERE repoId =:repoId AND packageName IN (:packageNames)")
+    List<RowDigest> getDigests(String repoId, List<String> packageNames);
+
+    @Query("SELECT * FROM APP_PACKAGE WHERE repoId =:repoId AND packageName IN (:packageNames)")
+    List<AppPackage> getAppPackages(String repoId, List<String> packageNames);
+
+    @Query("DELETE FROM APP_PACKAGE WHERE repoId =:repoId AND packageName IN (:packageNames)")
+    int delete(String repoId, List<String> packageNames);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<AppPackage> packageList);
 
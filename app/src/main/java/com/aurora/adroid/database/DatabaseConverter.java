@@ -24,75 +24,84 @@ import androidx.room.TypeConverter;
 import com.aurora.adroid.model.Package;
 import com.aurora.adroid.model.v2.AppPackage;
 import com.aurora.adroid.model.v2.Localization;
+import com.aurora.adroid.util.GsonUtil;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
+import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.List;
 
 public class DatabaseConverter {
 
+    private static final Gson GSON = GsonUtil.getGson();
+
+    private static final Type STRING_LIST_TYPE = new TypeToken<List<String>>() {
+    }.getType();
+    private static final Type NESTED_STRING_LIST_TYPE = new TypeToken<List<List<String>>>() {
+    }.getType();
+    private static final Type PACKAGE_LIST_TYPE = new TypeToken<List<Package>>() {
+    }.getType();
+    private static final Type LOCALIZATION_MAP_TYPE = new TypeToken<HashMap<String, Localization>>() {
+    }.getType();
+
     @TypeConverter
     public static List<String> restoreList(String listOfString) {
-        return new Gson().fromJson(listOfString, new TypeToken<List<String>>() {
-        }.getType());
+        return GSON.fromJson(listOfString, STRING_LIST_TYPE);
     }
 
     @TypeConverter
     public static List<List<String>> restoreNestedList(String listOfString) {
-        return new Gson().fromJson(listOfString, new TypeToken<List<List<String>>>() {
-        }.getType());
+        return GSON.fromJson(listOfString, NESTED_STRING_LIST_TYPE);
     }
 
     @TypeConverter
     public static String saveList(List<String> listOfString) {
-        return new Gson().toJson(listOfString);
+        return GSON.toJson(listOfString);
     }
 
     @TypeConverter
     public static String saveNestedList(List<List<String>> listOfString) {
-        return new Gson().toJson(listOfString);
+        return GSON.toJson(listOfString);
     }
 
     @TypeConverter
     public static List<Package> stringToPackageList(String listOfString) {
-        return new Gson().fromJson(listOfString, new TypeToken<List<Package>>() {
-        }.getType());
+        return GSON.fromJson(listOfString, PACKAGE_LIST_TYPE);
     }
 
     @TypeConverter
     public static String packageListToString(List<Package> packageList) {
-        return new Gson().toJson(packageList);
+        return GSON.toJson(packageList);
     }
 
     @TypeConverter
     public static Package stringToPackage(String listOfString) {
-        return new Gson().fromJson(listOfString, Package.class);
+        return GSON.fromJson(listOfString, Package.class);
     }
 
     @TypeConverter
     public static String packageToString(Package appPackage) {
-        return new Gson().toJson(appPackage);
+        return GSON.toJson(appPackage);
     }
 
     @TypeConverter
     public static AppPackage stringToAppPackage(String listOfString) {
-        return new Gson().fromJson(listOfString, AppPackage.class);
+        return GSON.fromJson(listOfString, AppPackage.class);
     }
 
     @TypeConverter
     public static String appPackageToString(AppPackage appPackage) {
-        return new Gson().toJson(appPackage);
+        return GSON.toJson(appPackage);
     }
 
     @TypeConverter
     public static HashMap<String, Localization> stringToLocalizationHashMap(String listOfString) {
-        return new Gson().fromJson(listOfString, new TypeToken<HashMap<String, Localization>>() {
-        }.getType());
+        return GSON.fromJson(listOfString, LOCALIZATION_MAP_TYPE);
     }
 
     @TypeConverter
     public static String localizationMapToString(HashMap<String, Localization> localizationHashMap) {
-        return new Gson().toJson(localizationHashMap);
+        return GSON.toJson(localizationHashMap);
     }
 }
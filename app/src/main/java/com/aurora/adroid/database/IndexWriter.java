@@ -0,0 +1,518 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.database;
+
+import android.content.Context;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.aurora.adroid.model.App;
+import com.aurora.adroid.model.ImportStats;
+import com.aurora.adroid.model.v2.AppPackage;
+import com.aurora.adroid.model.v2.Repo;
+import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.SyncExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single writer for index imports, repos are parsed in parallel but every
+ * database write funnels through one thread so parsers never fight over the
+ * SQLite write lock.
+ * <p>
+ * Each repo import is a {@link Session}. Its batches are written to a private
+ * staging database in short transactions of their own, so batches of different
+ * sessions interleave on the writer and no repo holds it for its whole import.
+ * Once the whole repo is in, its staged rows are moved into the catalog in one
+ * transaction. Readers therefore never see a half imported repo.
+ * <p>
+ * Only rows that are new or whose content changed are written. Unchanged rows
+ * are not touched at all, so a re-sync of a quiet repo neither grows the WAL nor
+ * wakes up observers. Every package name the index lists is staged next to the
+ * rows, stored rows of the repo missing from it were dropped by the repo and are
+ * swept by one delete per table in the same transaction.
+ * <p>
+ * A deferred writer keeps committed repos staged, {@link #publish()} then moves
+ * all of them into the catalog in one transaction. A sync can so replace its
+ * whole outcome at once, copying only the repos that changed.
+ * <p>
+ * An incremental session applies an index-v2 diff instead, it stages the names
+ * the diff deletes and removes only those, it never sweeps.
+ * <p>
+ * {@link #cancel()} drops every session that has not committed yet, parsers
+ * feeding a cancelled writer fail on their next batch.
+ */
+public class IndexWriter {
+
+    /*Batches a parser may run ahead of the writer before it has to wait*/
+    private static final int QUEUE_CAPACITY = 4;
+
+    /*Tables whose rows a repo can drop, each has a temp table of the names staged for it*/
+    private static final String[] SWEPT_TABLES = {"app", "app_package"};
+
+    private final ExecutorService executor = SyncExecutors.newExecutor("sync-writer", 1);
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    private final List<Session> readyList = new ArrayList<>();
+    private final boolean deferred;
+    private final Context context;
+    private final AppDatabase appDatabase;
+    private final AppDatabase stagingDatabase;
+    private final AppDao appDao;
+    private final AppPackageDao appPackageDao;
+    private volatile boolean cancelled = false;
+
+    public IndexWriter(Context context) {
+        this(context, false);
+    }
+
+    public IndexWriter(Context context, boolean deferred) {
+        this.context = context.getApplicationContext();
+        this.deferred = deferred;
+        this.appDatabase = AppDatabase.getDatabase(context);
+        this.appDao = appDatabase.appDao();
+        this.appPackageDao = appDatabase.appPackageDao();
+        this.stagingDatabase = AppDatabase.createStagingDatabase(context);
+        executor.execute(this::attach);
+    }
+
+    /*Catalog the sessions publish to*/
+    public AppDatabase getDatabase() {
+        return appDatabase;
+    }
+
+    public Session openSession(String repoId) {
+        return new Session(repoId, false);
+    }
+
+    public Session openIncrementalSession(String repoId) {
+        return new Session(repoId, true);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Publishes every session a deferred writer committed so far, in one transaction.
+     *
+     * @return true if all of them are now in the catalog, also when none was staged
+     */
+    public boolean publish() {
+        try {
+            return executor.submit(() -> {
+                if (cancelled)
+                    return false;
+                if (!readyList.isEmpty())
+                    publish(readyList);
+                readyList.clear();
+                return true;
+            }).get();
+        } catch (Exception e) {
+            Log.e("Unable to publish staged repos : %s", e.getMessage());
+            return false;
+        }
+    }
+
+    /*Sessions still queued are finished first, the staging database goes last*/
+    public void shutdown() {
+        if (shutdown.compareAndSet(false, true)) {
+            executor.execute(this::close);
+            executor.shutdown();
+        }
+    }
+
+    /*Waits for sessions still rolling back, the database may be closed once this returns true*/
+    public boolean awaitTermination(long millis) {
+        try {
+            return executor.awaitTermination(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private SupportSQLiteDatabase getStagingDb() {
+        return stagingDatabase.getOpenHelper().getWritableDatabase();
+    }
+
+    /*
+     * The catalog is attached to the staging connection and not the other way round,
+     * attaching on the catalog connection would make Android turn WAL off for good.
+     * The staging database has a single connection, so its temp tables are shared by all sessions.
+     */
+    private void attach() {
+        final String path = appDatabase.getOpenHelper().getWritableDatabase().getPath();
+        final SupportSQLiteDatabase db = getStagingDb();
+        db.execSQL("ATTACH DATABASE ? AS target", new Object[]{path});
+        for (String table : SWEPT_TABLES)
+            db.execSQL("CREATE TEMP TABLE IF NOT EXISTS `listed_" + table + "` (repoId TEXT NOT NULL, "
+                    + "packageName TEXT NOT NULL, PRIMARY KEY (repoId, packageName)) WITHOUT ROWID");
+    }
+
+    /*
+     * One transaction on the staging connection, the catalog is attached to it. Rows
+     * written that way bypass the catalog's own connection, so its observers are told.
+     */
+    private void publish(List<Session> sessionList) {
+        final SupportSQLiteDatabase db = getStagingDb();
+        final Set<String> tableSet = new HashSet<>();
+
+        db.beginTransaction();
+        try {
+            for (Session session : sessionList)
+                tableSet.addAll(session.move(db));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (!tableSet.isEmpty())
+            appDatabase.getInvalidationTracker().notifyObserversByTableNames(tableSet.toArray(new String[0]));
+    }
+
+    private void close() {
+        try {
+            getStagingDb().execSQL("DETACH DATABASE target");
+        } catch (Exception e) {
+            Log.e("Unable to detach the catalog : %s", e.getMessage());
+        } finally {
+            AppDatabase.discardStagingDatabase(context, stagingDatabase);
+        }
+    }
+
+    public class Session {
+
+        private final String repoId;
+        private final boolean incremental;
+        private final Semaphore permits = new Semaphore(QUEUE_CAPACITY);
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final ImportStats importStats = new ImportStats();
+        private volatile boolean committed = false;
+        private volatile Exception failure;
+        private int droppedApps;
+        private int droppedPackages;
+        private int stagedApps;
+        private int stagedPackages;
+        private volatile long blockedNanos;
+        private volatile long writeNanos;
+
+        private Session(String repoId, boolean incremental) {
+            this.repoId = repoId;
+            this.incremental = incremental;
+        }
+
+        /**
+         * Writes only apps that are new or whose lastUpdated / content hash moved,
+         * unchanged rows are left as they are.
+         */
+        public void upsertApps(List<App> appList) {
+            put(() -> {
+                final List<String> packageNames = new ArrayList<>();
+                for (App app : appList)
+                    packageNames.add(app.getPackageName());
+
+                final Map<String, RowDigest> digestMap = toDigestMap(appDao.getDigests(repoId, packageNames));
+                final List<App> changedList = new ArrayList<>();
+
+                for (App app : appList) {
+                    final RowDigest rowDigest = digestMap.get(app.getPackageName());
+                    if (rowDigest == null) {
+                        importStats.setInserted(importStats.getInserted() + 1);
+                    } else if (Objects.equals(rowDigest.getLastUpdated(), app.getLastUpdated())
+                            && Objects.equals(rowDigest.getContentHash(), app.getContentHash())) {
+                        importStats.setUnchanged(importStats.getUnchanged() + 1);
+                        continue;
+                    } else {
+                        importStats.setUpdated(importStats.getUpdated() + 1);
+                    }
+                    changedList.add(app);
+                }
+
+                stagingDatabase.runInTransaction(() -> {
+                    list("app", packageNames);
+                    if (!changedList.isEmpty())
+                        stagingDatabase.appDao().insertAll(changedList);
+                });
+                stagedApps += changedList.size();
+            });
+        }
+
+        public void upsertPackages(List<AppPackage> appPackageList) {
+            put(() -> {
+                final List<String> packageNames = new ArrayList<>();
+                for (AppPackage appPackage : appPackageList)
+                    packageNames.add(appPackage.getPackageName());
+
+                final Map<String, RowDigest> digestMap = toDigestMap(appPackageDao.getDigests(repoId, packageNames));
+                final List<AppPackage> changedList = new ArrayList<>();
+
+                for (AppPackage appPackage : appPackageList) {
+                    final RowDigest rowDigest = digestMap.get(appPackage.getPackageName());
+                    if (rowDigest == null) {
+                        importStats.setInserted(importStats.getInserted() + 1);
+                    } else if (Objects.equals(rowDigest.getContentHash(), appPackage.getContentHash())) {
+                        importStats.setUnchanged(importStats.getUnchanged() + 1);
+                        continue;
+                    } else {
+                        importStats.setUpdated(importStats.getUpdated() + 1);
+                    }
+                    changedList.add(appPackage);
+                }
+
+                stagingDatabase.runInTransaction(() -> {
+                    list("app_package", packageNames);
+                    if (!changedList.isEmpty())
+                        stagingDatabase.appPackageDao().insertAll(changedList);
+                });
+                stagedPackages += changedList.size();
+            });
+        }
+
+        /*Packages the diff removes, they leave the catalog when the session commits*/
+        public void delete(List<String> packageNames) {
+            put(() -> stagingDatabase.runInTransaction(() -> {
+                for (String table : SWEPT_TABLES)
+                    list(table, packageNames);
+            }));
+        }
+
+        public ImportStats getImportStats() {
+            return importStats;
+        }
+
+        /*Time the parser spent waiting for room in the queue*/
+        public long getBlockedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(blockedNanos);
+        }
+
+        /*Time the writer spent applying this session's batches*/
+        public long getWriteMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(writeNanos);
+        }
+
+        /**
+         * Stages the repo row and waits for the writer to move the staged rows into the
+         * catalog, a deferred writer keeps them staged until {@link #publish()}.
+         *
+         * @return true if every batch of this session is now committed
+         */
+        public boolean commit(Repo repo) {
+            put(() -> stagingDatabase.repoDao().insert(repo));
+            finish(true);
+            return committed;
+        }
+
+        public void abort() {
+            if (finished.getCount() > 0)
+                finish(false);
+        }
+
+        private void finish(boolean publish) {
+            final boolean queued = execute(() -> {
+                try {
+                    if (cancelled) {
+                        Log.i("Import of %s cancelled, rolled back", repoId);
+                    } else if (publish && failure == null) {
+                        final long start = System.nanoTime();
+                        prepare();
+                        if (deferred)
+                            readyList.add(this);
+                        else
+                            publish(Collections.singletonList(this));
+                        writeNanos += System.nanoTime() - start;
+                        committed = true;
+                    }
+                } catch (Exception e) {
+                    Log.e("Import failed for %s : %s", repoId, e.getMessage());
+                } finally {
+                    /*A later session of the same repo must not pick up these rows*/
+                    if (!committed)
+                        clearStaged();
+                    finished.countDown();
+                }
+            });
+
+            /*Writer already gone, nothing of this session can reach the catalog any more*/
+            if (!queued)
+                finished.countDown();
+            await();
+        }
+
+        /*
+         * Stored rows that leave the catalog, those the index no longer lists or the diff
+         * deletes. Worked out at commit, a deferred writer publishes into the same catalog.
+         */
+        private void prepare() {
+            final SupportSQLiteDatabase db = getStagingDb();
+            droppedApps = count(db, "app");
+            droppedPackages = count(db, "app_package");
+            importStats.setRemoved(droppedApps + droppedPackages);
+            if (!incremental)
+                Log.i("Sweeping %d apps & %d packages removed from %s", droppedApps, droppedPackages, repoId);
+        }
+
+        /*Moves the staged rows of this session into the catalog, returns the tables written*/
+        private List<String> move(SupportSQLiteDatabase db) {
+            for (String table : SWEPT_TABLES)
+                db.execSQL("DELETE FROM target.`" + table + "` WHERE " + getSweepClause(table),
+                        new Object[]{repoId, repoId});
+
+            for (String table : AppDatabase.TABLES) {
+                db.execSQL("INSERT OR REPLACE INTO target.`" + table + "` SELECT * FROM main.`" + table
+                        + "` WHERE repoId = ?", new Object[]{repoId});
+                db.execSQL("DELETE FROM main.`" + table + "` WHERE repoId = ?", new Object[]{repoId});
+            }
+            clearListed(db);
+
+            final List<String> tableList = new ArrayList<>();
+            tableList.add("repo");
+            if (stagedApps > 0 || droppedApps > 0)
+                tableList.add("app");
+            if (stagedPackages > 0 || droppedPackages > 0)
+                tableList.add("app_package");
+            return tableList;
+        }
+
+        /*Full imports keep the names they listed, incremental ones drop the names the diff deleted*/
+        private String getSweepClause(String table) {
+            return "repoId = ? AND packageName " + (incremental ? "IN" : "NOT IN")
+                    + " (SELECT packageName FROM temp.`listed_" + table + "` WHERE repoId = ?)";
+        }
+
+        private int count(SupportSQLiteDatabase db, String table) {
+            final SupportSQLiteStatement statement = db.compileStatement("SELECT COUNT(*) FROM target.`"
+                    + table + "` WHERE " + getSweepClause(table));
+            statement.bindString(1, repoId);
+            statement.bindString(2, repoId);
+            return (int) statement.simpleQueryForLong();
+        }
+
+        private void list(String table, List<String> packageNames) {
+            final SupportSQLiteStatement statement = getStagingDb().compileStatement("INSERT OR IGNORE INTO temp.`listed_"
+                    + table + "` (repoId, packageName) VALUES (?, ?)");
+            for (String packageName : packageNames) {
+                statement.bindString(1, repoId);
+                statement.bindString(2, packageName);
+                statement.executeInsert();
+            }
+        }
+
+        private void clearListed(SupportSQLiteDatabase db) {
+            for (String table : SWEPT_TABLES)
+                db.execSQL("DELETE FROM temp.`listed_" + table + "` WHERE repoId = ?", new Object[]{repoId});
+        }
+
+        private void clearStaged() {
+            try {
+                final SupportSQLiteDatabase db = getStagingDb();
+                for (String table : AppDatabase.TABLES)
+                    db.execSQL("DELETE FROM main.`" + table + "` WHERE repoId = ?", new Object[]{repoId});
+                clearListed(db);
+            } catch (Exception e) {
+                Log.e("Unable to clear staged rows of %s : %s", repoId, e.getMessage());
+            }
+        }
+
+        private Map<String, RowDigest> toDigestMap(List<RowDigest> rowDigestList) {
+            final Map<String, RowDigest> digestMap = new HashMap<>();
+            for (RowDigest rowDigest : rowDigestList)
+                digestMap.put(rowDigest.getPackageName(), rowDigest);
+            return digestMap;
+        }
+
+        /*
+         * A batch takes one of the session's permits until the writer applied it, so a parser
+         * runs at most QUEUE_CAPACITY batches ahead. Batches after a failed one are dropped.
+         */
+        private void put(Runnable task) {
+            if (cancelled)
+                throw new CancellationException("Import cancelled for " + repoId);
+
+            final long start = System.nanoTime();
+            try {
+                while (!permits.tryAcquire(1, TimeUnit.SECONDS)) {
+                    if (failure != null || finished.getCount() == 0)
+                        throw new IllegalStateException("Import session closed for " + repoId);
+                    if (cancelled)
+                        throw new CancellationException("Import cancelled for " + repoId);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                blockedNanos += System.nanoTime() - start;
+            }
+
+            final boolean queued = execute(() -> {
+                try {
+                    if (!cancelled && failure == null) {
+                        final long begin = System.nanoTime();
+                        task.run();
+                        writeNanos += System.nanoTime() - begin;
+                    }
+                } catch (Exception e) {
+                    failure = e;
+                    Log.e("Import failed for %s : %s", repoId, e.getMessage());
+                } finally {
+                    permits.release();
+                }
+            });
+
+            if (!queued)
+                throw new IllegalStateException("Import session closed for " + repoId);
+        }
+
+        private boolean execute(Runnable runnable) {
+            try {
+                executor.execute(runnable);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+
+        private void await() {
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
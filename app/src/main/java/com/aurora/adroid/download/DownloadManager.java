@@ -22,6 +22,7 @@ package com.aurora.adroid.download;
 import android.content.Context;
 
 import com.aurora.adroid.Constants;
+import com.aurora.adroid.manager.HttpClientManager;
 import com.aurora.adroid.util.Util;
 import com.tonyodev.fetch2.Download;
 import com.tonyodev.fetch2.Fetch;
@@ -31,8 +32,6 @@ import com.tonyodev.fetch2okhttp.OkHttpDownloader;
 
 import java.util.List;
 
-import okhttp3.OkHttpClient;
-
 public class DownloadManager {
 
     private static volatile DownloadManager instance;
@@ -59,7 +58,7 @@ public class DownloadManager {
     private static Fetch getFetch(Context context) {
         FetchConfiguration.Builder fetchConfiguration = new FetchConfiguration.Builder(context)
                 .setDownloadConcurrentLimit(Util.getActiveDownloadCount(context))
-                .setHttpDownloader(new OkHttpDownloader(getOkHttpClient(context), Util.getDownloadStrategy(context)))
+                .setHttpDownloader(new OkHttpDownloader(HttpClientManager.getDownloadClient(context), Util.getDownloadStrategy(context)))
                 .setNamespace(Constants.TAG)
                 .enableLogging(Util.isFetchDebugEnabled(context))
                 .enableHashCheck(true)
@@ -71,13 +70,6 @@ public class DownloadManager {
         return Fetch.Impl.getInstance(fetchConfiguration.build());
     }
 
-    private static OkHttpClient getOkHttpClient(Context context) {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        if (Util.isNetworkProxyEnabled(context))
-            builder.proxy(Util.getNetworkProxy(context));
-        return builder.build();
-    }
-
     public static void updateOngoingDownloads(Fetch fetch, List<String> packageList, Download download,
                                               FetchListener fetchListener) {
         if (packageList.contains(download.getTag())) {
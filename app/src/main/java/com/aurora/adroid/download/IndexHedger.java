@@ -0,0 +1,196 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.download;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.aurora.adroid.Constants;
+import com.aurora.adroid.manager.MirrorManager;
+import com.aurora.adroid.manager.RepoListManager;
+import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.PathUtil;
+import com.aurora.adroid.util.Util;
+import com.tonyodev.fetch2.Download;
+import com.tonyodev.fetch2.Fetch;
+import com.tonyodev.fetch2.Priority;
+import com.tonyodev.fetch2.Request;
+import com.tonyodev.fetch2.Status;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hedges index downloads, if a repo JAR has not delivered its first bytes within
+ * {@link #LATENCY_BUDGET} a second request is started against another mirror. The first
+ * attempt to finish wins and the other one is deleted, a repo fails only once both did.
+ * <p>
+ * Everything here runs on the main thread, as do the Fetch callbacks feeding it.
+ */
+public class IndexHedger {
+
+    public static final int HEDGE_GROUP = 1338;
+
+    private static final long LATENCY_BUDGET = 3000;
+
+    private final Context context;
+    private final Fetch fetch;
+    private final MirrorManager mirrorManager;
+    private final RepoListManager repoListManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Request> primaryMap = new HashMap<>();
+    private final Map<String, Request> hedgeMap = new HashMap<>();
+    private final Set<String> settledSet = new HashSet<>();
+    private final Set<String> failedSet = new HashSet<>();
+
+    public IndexHedger(Context context, Fetch fetch) {
+        this.context = context;
+        this.fetch = fetch;
+        this.mirrorManager = new MirrorManager(context);
+        this.repoListManager = new RepoListManager(context);
+    }
+
+    public void watch(List<Request> requestList) {
+        for (Request request : requestList) {
+            primaryMap.put(request.getTag(), request);
+            handler.postDelayed(() -> check(request), LATENCY_BUDGET);
+        }
+    }
+
+    public void onCompleted(Download download, Callback callback) {
+        final String repoId = download.getTag();
+        final boolean hedged = download.getGroup() == HEDGE_GROUP;
+
+        /*A late loser, a primary never deletes its file as that may be the promoted hedge by now*/
+        if (!settledSet.add(repoId)) {
+            if (hedged)
+                fetch.delete(download.getId());
+            else
+                fetch.remove(download.getId());
+            return;
+        }
+
+        final Request other = hedged ? primaryMap.get(repoId) : hedgeMap.get(repoId);
+
+        if (other == null) {
+            callback.onCompleted(download, new File(download.getFile()));
+        } else if (!hedged) {
+            fetch.delete(other.getId());
+            callback.onCompleted(download, new File(download.getFile()));
+        } else {
+            /*The primary writes to the canonical file, it has to be gone before the hedge takes its place*/
+            fetch.delete(other.getId(),
+                    deleted -> promote(download, callback),
+                    error -> promote(download, callback));
+        }
+    }
+
+    public void onError(Download download, Callback callback) {
+        final String repoId = download.getTag();
+        if (settledSet.contains(repoId))
+            return;
+
+        final boolean hedged = download.getGroup() == HEDGE_GROUP;
+        final Request other = hedged ? primaryMap.get(repoId) : hedgeMap.get(repoId);
+
+        if (other != null && failedSet.add(repoId)) {
+            Log.i("Index download failed for %s, waiting on %s", repoId, other.getUrl());
+            if (Util.isMirrorChecked(context, repoId))
+                mirrorManager.recordFailure(repoId, getBaseUrl(download.getUrl()));
+            return;
+        }
+
+        settledSet.add(repoId);
+        callback.onFailed(download);
+    }
+
+    public void stop() {
+        handler.removeCallbacksAndMessages(null);
+        fetch.removeGroup(HEDGE_GROUP);
+    }
+
+    private void check(Request request) {
+        final String repoId = request.getTag();
+        if (settledSet.contains(repoId) || hedgeMap.containsKey(repoId))
+            return;
+
+        fetch.getDownload(request.getId(), download -> {
+            if (download == null || settledSet.contains(repoId))
+                return;
+
+            /*Still waiting for a download slot, the budget starts once it connects*/
+            if (download.getStatus() == Status.QUEUED || download.getStatus() == Status.ADDED)
+                handler.postDelayed(() -> check(request), LATENCY_BUDGET);
+            else if (download.getStatus() == Status.DOWNLOADING && download.getDownloaded() == 0)
+                startHedge(request);
+        });
+    }
+
+    private void startHedge(Request request) {
+        final String repoId = request.getTag();
+        final String url = getBaseUrl(request.getUrl());
+        final String alternative = mirrorManager.getAlternativeMirror(repoId, url,
+                mirrorManager.getCandidates(repoListManager.getRepoById(repoId), null));
+
+        if (alternative == null)
+            return;
+
+        final Request hedge = new Request(alternative + "/" + Constants.SIGNED_FILE_NAME,
+                PathUtil.getRepoDirectory(context) + repoId + ".hedge");
+        hedge.setExtras(request.getExtras());
+        hedge.setTag(repoId);
+        hedge.setGroupId(HEDGE_GROUP);
+        hedge.setNetworkType(request.getNetworkType());
+        hedge.setPriority(Priority.HIGH);
+
+        hedgeMap.put(repoId, hedge);
+        fetch.enqueue(hedge, result -> Log.i("Hedging %s, no bytes from %s within %d ms", repoId, url, LATENCY_BUDGET),
+                error -> hedgeMap.remove(repoId));
+    }
+
+    private void promote(Download download, Callback callback) {
+        final File file = new File(PathUtil.getRepoDirectory(context) + download.getTag() + "." + Constants.JAR);
+        FileUtils.deleteQuietly(file);
+        if (new File(download.getFile()).renameTo(file)) {
+            callback.onCompleted(download, file);
+        } else {
+            Log.e("Unable to move hedged index of %s", download.getTag());
+            callback.onFailed(download);
+        }
+    }
+
+    private String getBaseUrl(String url) {
+        return StringUtils.removeEnd(url, "/" + Constants.SIGNED_FILE_NAME);
+    }
+
+    public interface Callback {
+        void onCompleted(Download download, File file);
+
+        void onFailed(Download download);
+    }
+}
@@ -22,6 +22,7 @@ package com.aurora.adroid.download;
 import android.content.Context;
 
 import com.aurora.adroid.Constants;
+import com.aurora.adroid.manager.MirrorManager;
 import com.aurora.adroid.model.App;
 import com.aurora.adroid.model.Package;
 import com.aurora.adroid.model.StaticRepo;
@@ -45,7 +46,7 @@ import static com.aurora.adroid.Constants.SIGNED_FILE_NAME;
 public class RequestBuilder {
 
     public static Request buildRequest(Context context, App app) {
-        final Request request = new Request(DatabaseUtil.getDownloadURl(app),
+        final Request request = new Request(getRepoUrl(context, app) + "/" + app.getPkg().getApkName(),
                 PathUtil.getApkPath(context, app.getPackageName(), app.getPkg().getVersionCode()));
         addAppExtras(context, request, app, null);
         request.setEnqueueAction(EnqueueAction.REPLACE_EXISTING);
@@ -55,7 +56,7 @@ public class RequestBuilder {
     }
 
     public static Request buildRequest(Context context, App app, Package pkg) {
-        final Request request = new Request(DatabaseUtil.getDownloadURl(app, pkg),
+        final Request request = new Request(getRepoUrl(context, app) + "/" + pkg.getApkName(),
                 PathUtil.getApkPath(context, pkg.getPackageName(), pkg.getVersionCode()));
         addAppExtras(context, request, app, pkg);
         request.setEnqueueAction(EnqueueAction.REPLACE_EXISTING);
@@ -70,8 +71,11 @@ public class RequestBuilder {
 
             String repoUrl = staticRepo.getRepoUrl();
 
-            if (Util.isMirrorChecked(context, staticRepo.getRepoId()) && staticRepo.getRepoMirrors() != null)
-                repoUrl = staticRepo.getRepoMirrors()[0];
+            if (Util.isMirrorChecked(context, staticRepo.getRepoId()))
+                repoUrl = new MirrorManager(context).getBestMirror(staticRepo.getRepoId(),
+                        staticRepo.getRepoMirrors() != null && staticRepo.getRepoMirrors().length > 0
+                                ? staticRepo.getRepoMirrors()[0]
+                                : repoUrl);
 
             final RepoRequest request = new RepoRequest(repoUrl + "/" + SIGNED_FILE_NAME,
                     PathUtil.getRepoDirectory(context) + staticRepo.getRepoId() + "." + Constants.JAR);
@@ -87,6 +91,14 @@ public class RequestBuilder {
         return requestList;
     }
 
+    /*APKs live at the same relative path on every mirror of a repo*/
+    private static String getRepoUrl(Context context, App app) {
+        if (Util.isMirrorChecked(context, app.getRepoId()))
+            return new MirrorManager(context).getBestMirror(app.getRepoId(), app.getRepoUrl());
+        else
+            return app.getRepoUrl();
+    }
+
     private static void addAppExtras(Context context, Request request, App app, Package pkg) {
         final Map<String, String> stringMap = new HashMap<>();
         stringMap.put(Constants.DOWNLOAD_PACKAGE_NAME, app.getPackageName());
@@ -25,7 +25,11 @@ public enum EventType {
     SYNC_COMPLETED,
     SYNC_NO_UPDATES,
     SYNC_FAILED,
+    SYNC_CANCELLED,
+    SYNC_DEFERRED,
     SYNC_PROGRESS,
+    SYNC_REPORT,
+    REPO_SYNCED,
     /*Download Events*/
     DOWNLOAD_INITIATED,
     SUB_DOWNLOAD_INITIATED,
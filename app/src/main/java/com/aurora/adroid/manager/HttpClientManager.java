@@ -0,0 +1,181 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.manager;
+
+import android.content.Context;
+
+import com.aurora.adroid.util.Util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Process wide HTTP stack, every subsystem gets its own client but all of them
+ * share one connection pool, DNS cache and proxy, so a connection opened to a
+ * repo host while syncing is reused by downloads and image loads alike.
+ * <p>
+ * Each client has a dedicated {@link Dispatcher}, so cancelling the calls of one
+ * subsystem leaves the others running. Dispatcher limits only apply to enqueued
+ * calls, which is how Glide loads images. Sync and Fetch block in execute(), their
+ * concurrency is capped where they run, by the sync-check executor and the Fetch
+ * download limit. Proxy changes restart the app, the stack is built only once.
+ * <p>
+ * The sync and metadata clients also share a size capped disk {@link Cache}, it
+ * honors Cache-Control and revalidates with ETag / Last-Modified on its own. Only
+ * GET responses are stored, the HEAD checks of a sync never hit it and rely on the
+ * validators kept per repo instead.
+ */
+public class HttpClientManager {
+
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long CACHE_SIZE = 10 * 1024 * 1024;
+
+    private static volatile HttpClientManager instance;
+
+    private final Cache cache;
+    private final OkHttpClient baseClient;
+    private final OkHttpClient syncClient;
+    private final OkHttpClient downloadClient;
+    private final OkHttpClient imageClient;
+    private final OkHttpClient metadataClient;
+
+    private HttpClientManager(Context context) {
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .dns(new CachingDns())
+                .connectTimeout(15, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true);
+
+        if (Util.isNetworkProxyEnabled(context))
+            builder.proxy(Util.getNetworkProxy(context));
+
+        cache = new Cache(new File(context.getCacheDir(), "http"), CACHE_SIZE);
+        baseClient = builder.build();
+        syncClient = newClient(new Dispatcher())
+                .newBuilder()
+                .cache(cache)
+                .build();
+        downloadClient = newClient(new Dispatcher());
+        imageClient = newClient(getDispatcher(16, 6));
+        metadataClient = newClient(new Dispatcher())
+                .newBuilder()
+                .cache(cache)
+                .build();
+    }
+
+    private static HttpClientManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (HttpClientManager.class) {
+                if (instance == null)
+                    instance = new HttpClientManager(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    /*Repo index checks, mirror probes and index-v2 diffs, run on the sync-check executor*/
+    public static OkHttpClient getSyncClient(Context context) {
+        return getInstance(context).syncClient;
+    }
+
+    /*Backs Fetch, for repo JARs and APKs, at most as many at once as Fetch runs downloads*/
+    public static OkHttpClient getDownloadClient(Context context) {
+        return getInstance(context).downloadClient;
+    }
+
+    public static OkHttpClient getImageClient(Context context) {
+        return getInstance(context).imageClient;
+    }
+
+    /*One-off lookups such as validating a repo url*/
+    public static OkHttpClient getMetadataClient(Context context) {
+        return getInstance(context).metadataClient;
+    }
+
+    /*Shared by the sync and metadata clients, its counters feed the sync report*/
+    public static Cache getCache(Context context) {
+        return getInstance(context).cache;
+    }
+
+    private OkHttpClient newClient(Dispatcher dispatcher) {
+        /*newBuilder() keeps the pool, dns and proxy of the base client*/
+        return baseClient.newBuilder()
+                .dispatcher(dispatcher)
+                .build();
+    }
+
+    private Dispatcher getDispatcher(int maxRequests, int maxRequestsPerHost) {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return dispatcher;
+    }
+
+    /**
+     * Remembers successful lookups for a short while, the same few repo hosts are
+     * resolved over and over during a sync.
+     */
+    private static class CachingDns implements Dns {
+
+        private static final long TTL = TimeUnit.MINUTES.toMillis(10);
+
+        private final Map<String, Entry> entryMap = new ConcurrentHashMap<>();
+
+        @NotNull
+        @Override
+        public List<InetAddress> lookup(@NotNull String hostname) throws UnknownHostException {
+            final Entry entry = entryMap.get(hostname);
+            if (entry != null && System.currentTimeMillis() - entry.resolved < TTL)
+                return entry.addressList;
+
+            final List<InetAddress> addressList = Dns.SYSTEM.lookup(hostname);
+            entryMap.put(hostname, new Entry(addressList, System.currentTimeMillis()));
+            return addressList;
+        }
+
+        private static class Entry {
+            private final List<InetAddress> addressList;
+            private final long resolved;
+
+            private Entry(List<InetAddress> addressList, long resolved) {
+                this.addressList = addressList;
+                this.resolved = resolved;
+            }
+        }
+    }
+}
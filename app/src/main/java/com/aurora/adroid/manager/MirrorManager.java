@@ -0,0 +1,290 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.manager;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.aurora.adroid.Constants;
+import com.aurora.adroid.model.MirrorScore;
+import com.aurora.adroid.model.StaticRepo;
+import com.aurora.adroid.model.v2.Repo;
+import com.aurora.adroid.util.GsonUtil;
+import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.PrefUtil;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Keeps a decayed latency / throughput score for every known mirror of a repo and picks
+ * the best one for index and APK downloads. Mirrors are probed with a HEAD of the index
+ * only when their score is older than {@link #PROBE_TTL}, real downloads keep it fresh in between.
+ */
+public class MirrorManager {
+
+    private static final long PROBE_TTL = TimeUnit.HOURS.toMillis(6);
+
+    /*Weight of the newest sample, older samples decay by (1 - ALPHA) on every update*/
+    private static final double ALPHA = 0.3;
+
+    /*Score added for every consecutive failure of a mirror*/
+    private static final double FAILURE_PENALTY = 5000;
+
+    /*Transfer size the throughput is weighed for, roughly an index download*/
+    private static final double REFERENCE_SIZE = 1024 * 1024;
+
+    /*The selected mirror is kept until another one scores this much better, as switching invalidates validators*/
+    private static final double SWITCH_RATIO = 0.7;
+
+    private static final Object LOCK = new Object();
+
+    private Context context;
+    private Gson gson;
+
+    public MirrorManager(Context context) {
+        this.context = context;
+        this.gson = GsonUtil.getGson();
+    }
+
+    /*
+     * Repo url, mirrors bundled with the repo and mirrors announced by the synced index,
+     * the latter two may overlap.
+     */
+    public List<String> getCandidates(StaticRepo staticRepo, Repo repo) {
+        final Set<String> urlSet = new LinkedHashSet<>();
+        if (staticRepo.getRepoUrl() != null)
+            urlSet.add(StringUtils.removeEnd(staticRepo.getRepoUrl(), "/"));
+        if (staticRepo.getRepoMirrors() != null)
+            for (String url : Arrays.asList(staticRepo.getRepoMirrors()))
+                urlSet.add(StringUtils.removeEnd(url, "/"));
+        if (repo != null && repo.getMirrors() != null)
+            for (String url : repo.getMirrors())
+                urlSet.add(StringUtils.removeEnd(url, "/"));
+        return new ArrayList<>(urlSet);
+    }
+
+    /**
+     * Probes the mirrors of a repo whose score went stale and forgets mirrors the repo no longer lists.
+     */
+    public void probe(OkHttpClient client, String repoId, List<String> urlList) {
+        synchronized (LOCK) {
+            final Map<String, MirrorScore> scoreMap = getScoreMap();
+            final Iterator<MirrorScore> iterator = scoreMap.values().iterator();
+            while (iterator.hasNext()) {
+                final MirrorScore mirrorScore = iterator.next();
+                if (repoId.equals(mirrorScore.getRepoId()) && !urlList.contains(mirrorScore.getUrl()))
+                    iterator.remove();
+            }
+            saveScoreMap(scoreMap);
+        }
+
+        for (String url : urlList) {
+            final MirrorScore mirrorScore = getScore(url);
+            if (mirrorScore != null && System.currentTimeMillis() - mirrorScore.getUpdated() < PROBE_TTL)
+                continue;
+
+            final Request request = new Request.Builder()
+                    .url(url + "/" + Constants.SIGNED_FILE_NAME)
+                    .head()
+                    .build();
+
+            final long start = SystemClock.elapsedRealtime();
+            try (Response response = client.newCall(request).execute()) {
+                if (response.isSuccessful())
+                    recordLatency(repoId, url, SystemClock.elapsedRealtime() - start);
+                else
+                    recordFailure(repoId, url);
+            } catch (Exception e) {
+                Log.e("Mirror probe failed for %s : %s", url, e.getMessage());
+                recordFailure(repoId, url);
+            }
+        }
+    }
+
+    public void recordLatency(String repoId, String url, long millis) {
+        update(repoId, url, mirrorScore -> {
+            mirrorScore.setLatency(decay(mirrorScore.getLatency(), millis, mirrorScore.getUpdated()));
+            mirrorScore.setFailures(0);
+        });
+    }
+
+    public void recordTransfer(String repoId, String url, long bytes, long millis) {
+        if (bytes <= 0 || millis <= 0)
+            return;
+        update(repoId, url, mirrorScore -> {
+            mirrorScore.setThroughput(decay(mirrorScore.getThroughput(), bytes * 1000d / millis, mirrorScore.getUpdated()));
+            mirrorScore.setFailures(0);
+        });
+    }
+
+    public void recordFailure(String repoId, String url) {
+        update(repoId, url, mirrorScore -> mirrorScore.setFailures(mirrorScore.getFailures() + 1));
+    }
+
+    /**
+     * Best scored mirror of a repo, the currently selected one wins unless another
+     * scores clearly better.
+     *
+     * @param fallbackUrl url used while no mirror of the repo has been measured yet
+     */
+    public String getBestMirror(String repoId, String fallbackUrl) {
+        synchronized (LOCK) {
+            final Map<String, MirrorScore> scoreMap = getScoreMap();
+            final MirrorScore best = select(scoreMap.values(), repoId);
+
+            if (best == null)
+                return fallbackUrl;
+
+            if (!best.isSelected()) {
+                for (MirrorScore mirrorScore : scoreMap.values())
+                    if (repoId.equals(mirrorScore.getRepoId()))
+                        mirrorScore.setSelected(false);
+                best.setSelected(true);
+                saveScoreMap(scoreMap);
+                Log.i("Mirror selected for %s : %s", repoId, best.getUrl());
+            }
+            return best.getUrl();
+        }
+    }
+
+    /*
+     * Mirror of a repo to download from, the selected one unless another scores better
+     * by SWITCH_RATIO, null if no mirror of the repo was measured yet.
+     */
+    static MirrorScore select(Collection<MirrorScore> scoreList, String repoId) {
+        MirrorScore best = null;
+        MirrorScore selected = null;
+
+        for (MirrorScore mirrorScore : scoreList) {
+            if (!repoId.equals(mirrorScore.getRepoId()))
+                continue;
+            if (mirrorScore.isSelected())
+                selected = mirrorScore;
+            if (best == null || getScore(mirrorScore) < getScore(best))
+                best = mirrorScore;
+        }
+
+        if (best != null && selected != null && getScore(best) > getScore(selected) * SWITCH_RATIO)
+            return selected;
+        return best;
+    }
+
+    /**
+     * Best scored mirror of a repo other than the given one, used to hedge a stalled download.
+     *
+     * @param fallbackList mirrors to fall back to, in order, while none is measured
+     * @return the alternative mirror or null if the repo has none
+     */
+    public String getAlternativeMirror(String repoId, String excludeUrl, List<String> fallbackList) {
+        synchronized (LOCK) {
+            MirrorScore best = null;
+            for (MirrorScore mirrorScore : getScoreMap().values()) {
+                if (!repoId.equals(mirrorScore.getRepoId()) || mirrorScore.getUrl().equals(excludeUrl))
+                    continue;
+                if (best == null || getScore(mirrorScore) < getScore(best))
+                    best = mirrorScore;
+            }
+
+            if (best != null)
+                return best.getUrl();
+
+            for (String url : fallbackList)
+                if (!url.equals(excludeUrl))
+                    return url;
+            return null;
+        }
+    }
+
+    static double getScore(MirrorScore mirrorScore) {
+        double score = mirrorScore.getLatency() + mirrorScore.getFailures() * FAILURE_PENALTY;
+        if (mirrorScore.getThroughput() > 0)
+            score += REFERENCE_SIZE / mirrorScore.getThroughput() * 1000;
+        return score;
+    }
+
+    /*
+     * Exponentially weighted average, a sample taken after the score went stale replaces it.
+     */
+    static double decay(double current, double sample, long updated) {
+        if (current <= 0 || System.currentTimeMillis() - updated > PROBE_TTL)
+            return sample;
+        return ALPHA * sample + (1 - ALPHA) * current;
+    }
+
+    private MirrorScore getScore(String url) {
+        synchronized (LOCK) {
+            return getScoreMap().get(url);
+        }
+    }
+
+    private void update(String repoId, String url, ScoreUpdate scoreUpdate) {
+        synchronized (LOCK) {
+            final Map<String, MirrorScore> scoreMap = getScoreMap();
+            MirrorScore mirrorScore = scoreMap.get(url);
+            if (mirrorScore == null) {
+                mirrorScore = new MirrorScore();
+                mirrorScore.setRepoId(repoId);
+                mirrorScore.setUrl(url);
+            }
+            scoreUpdate.apply(mirrorScore);
+            mirrorScore.setUpdated(System.currentTimeMillis());
+            scoreMap.put(url, mirrorScore);
+            saveScoreMap(scoreMap);
+        }
+    }
+
+    private void saveScoreMap(Map<String, MirrorScore> scoreMap) {
+        PrefUtil.putString(context, Constants.PREFERENCE_MIRROR_SCORES, gson.toJson(scoreMap));
+    }
+
+    private Map<String, MirrorScore> getScoreMap() {
+        String rawMap = PrefUtil.getString(context, Constants.PREFERENCE_MIRROR_SCORES);
+        Type type = new TypeToken<HashMap<String, MirrorScore>>() {
+        }.getType();
+        Map<String, MirrorScore> scoreMap = gson.fromJson(rawMap, type);
+
+        if (scoreMap == null)
+            return new HashMap<>();
+        else
+            return scoreMap;
+    }
+
+    private interface ScoreUpdate {
+        void apply(MirrorScore mirrorScore);
+    }
+}
@@ -19,16 +19,23 @@
 
 package com.aurora.adroid.manager;
 
+import com.aurora.adroid.model.ImportStats;
 import com.aurora.adroid.model.StaticRepo;
 
 public class RepoBundle {
 
     private boolean synced;
     private StaticRepo staticRepo;
+    private ImportStats importStats;
 
     public RepoBundle(boolean status, StaticRepo staticRepo) {
+        this(status, staticRepo, new ImportStats());
+    }
+
+    public RepoBundle(boolean status, StaticRepo staticRepo, ImportStats importStats) {
         this.synced = status;
         this.staticRepo = staticRepo;
+        this.importStats = importStats;
     }
 
     public boolean isSynced() {
@@ -38,4 +45,8 @@ public class RepoBundle {
     public StaticRepo getStaticRepo() {
         return staticRepo;
     }
+
+    public ImportStats getImportStats() {
+        return importStats;
+    }
 }
@@ -84,9 +84,7 @@ public class RepoSyncManager {
 
     public void addToHeaderMap(RepoHeader repoHeader) {
         synchronized (headerHashMap) {
-            if (!headerHashMap.containsKey(repoHeader.getRepoId())) {
-                headerHashMap.put(repoHeader.getRepoId(), repoHeader);
-            }
+            headerHashMap.put(repoHeader.getRepoId(), repoHeader);
             saveRepoHeaderMap();
         }
     }
@@ -112,6 +110,12 @@ public class RepoSyncManager {
         }
     }
 
+    public RepoHeader getRepoHeader(String repoId) {
+        synchronized (headerHashMap) {
+            return headerHashMap.get(repoId);
+        }
+    }
+
     public List<RepoHeader> getHeaderList() {
         synchronized (headerHashMap) {
             return new ArrayList<>(headerHashMap.values());
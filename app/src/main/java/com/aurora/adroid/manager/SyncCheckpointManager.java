@@ -0,0 +1,118 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.manager;
+
+import android.content.Context;
+
+import com.aurora.adroid.Constants;
+import com.aurora.adroid.model.RepoHeader;
+import com.aurora.adroid.model.SyncCheckpoint;
+import com.aurora.adroid.util.GsonUtil;
+import com.aurora.adroid.util.PrefUtil;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists per repo checkpoints of the running sync, so a sync killed halfway resumes
+ * from the last completed stage of each repo. Checkpoints are cleared once a sync completes.
+ */
+public class SyncCheckpointManager {
+
+    /*Checkpoints older than this belong to a sync not worth resuming anymore*/
+    private static final long RESUME_WINDOW = TimeUnit.HOURS.toMillis(12);
+
+    private static final Object LOCK = new Object();
+
+    private Context context;
+    private Gson gson;
+
+    public SyncCheckpointManager(Context context) {
+        this.context = context;
+        this.gson = GsonUtil.getGson();
+    }
+
+    public void setStage(String repoId, SyncCheckpoint.Stage stage) {
+        setStage(repoId, stage, null);
+    }
+
+    public void setStage(String repoId, SyncCheckpoint.Stage stage, RepoHeader repoHeader) {
+        synchronized (LOCK) {
+            final Map<String, SyncCheckpoint> checkpointMap = getCheckpointMap();
+            SyncCheckpoint checkpoint = checkpointMap.get(repoId);
+            if (checkpoint == null) {
+                checkpoint = new SyncCheckpoint();
+                checkpoint.setRepoId(repoId);
+            }
+            if (repoHeader != null)
+                checkpoint.setRepoHeader(repoHeader);
+            checkpoint.setStage(stage);
+            checkpoint.setTimestamp(System.currentTimeMillis());
+            checkpointMap.put(repoId, checkpoint);
+            saveCheckpointMap(checkpointMap);
+        }
+    }
+
+    public SyncCheckpoint getCheckpoint(String repoId) {
+        synchronized (LOCK) {
+            return getCheckpointMap().get(repoId);
+        }
+    }
+
+    /*Checkpoints of an interrupted sync that are still recent enough to resume from*/
+    public Map<String, SyncCheckpoint> getResumableCheckpoints() {
+        synchronized (LOCK) {
+            final Map<String, SyncCheckpoint> checkpointMap = getCheckpointMap();
+            final Iterator<SyncCheckpoint> iterator = checkpointMap.values().iterator();
+            while (iterator.hasNext()) {
+                if (System.currentTimeMillis() - iterator.next().getTimestamp() > RESUME_WINDOW)
+                    iterator.remove();
+            }
+            return checkpointMap;
+        }
+    }
+
+    public void clear() {
+        synchronized (LOCK) {
+            saveCheckpointMap(new HashMap<>());
+        }
+    }
+
+    private void saveCheckpointMap(Map<String, SyncCheckpoint> checkpointMap) {
+        PrefUtil.putString(context, Constants.PREFERENCE_SYNC_CHECKPOINTS, gson.toJson(checkpointMap));
+    }
+
+    private Map<String, SyncCheckpoint> getCheckpointMap() {
+        String rawMap = PrefUtil.getString(context, Constants.PREFERENCE_SYNC_CHECKPOINTS);
+        Type type = new TypeToken<HashMap<String, SyncCheckpoint>>() {
+        }.getType();
+        Map<String, SyncCheckpoint> checkpointMap = gson.fromJson(rawMap, type);
+
+        if (checkpointMap == null)
+            return new HashMap<>();
+        else
+            return checkpointMap;
+    }
+}
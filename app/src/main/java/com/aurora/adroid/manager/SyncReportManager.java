@@ -0,0 +1,75 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.manager;
+
+import android.content.Context;
+
+import com.aurora.adroid.Constants;
+import com.aurora.adroid.model.SyncReport;
+import com.aurora.adroid.util.GsonUtil;
+import com.aurora.adroid.util.PrefUtil;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SyncReportManager {
+
+    private static final int MAX_REPORTS = 20;
+
+    private Context context;
+    private Gson gson;
+
+    public SyncReportManager(Context context) {
+        this.context = context;
+        this.gson = GsonUtil.getGson();
+    }
+
+    /*Newest report first, older ones beyond MAX_REPORTS are dropped*/
+    public synchronized void addReport(SyncReport syncReport) {
+        final List<SyncReport> syncReportList = getReports();
+        syncReportList.add(0, syncReport);
+        while (syncReportList.size() > MAX_REPORTS)
+            syncReportList.remove(syncReportList.size() - 1);
+        saveReports(syncReportList);
+    }
+
+    public void clear() {
+        saveReports(new ArrayList<>());
+    }
+
+    private void saveReports(List<SyncReport> syncReportList) {
+        PrefUtil.putString(context, Constants.PREFERENCE_SYNC_REPORTS, gson.toJson(syncReportList));
+    }
+
+    public List<SyncReport> getReports() {
+        String rawList = PrefUtil.getString(context, Constants.PREFERENCE_SYNC_REPORTS);
+        Type type = new TypeToken<List<SyncReport>>() {
+        }.getType();
+        List<SyncReport> syncReportList = gson.fromJson(rawList, type);
+
+        if (syncReportList == null)
+            return new ArrayList<>();
+        else
+            return syncReportList;
+    }
+}
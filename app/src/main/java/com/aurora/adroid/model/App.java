@@ -77,6 +77,7 @@ public class App {
     @Expose
     private HashMap<String, Localization> localizationMap;
     private List<String> antiFeatures;
+    private String contentHash;
 
     @Ignore
     private transient boolean installed;
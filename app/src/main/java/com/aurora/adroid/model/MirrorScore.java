@@ -0,0 +1,36 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.model;
+
+import lombok.Data;
+
+/**
+ * Decayed measurements of a single repo mirror, latency in milliseconds and throughput in bytes per second.
+ */
+@Data
+public class MirrorScore {
+    private String repoId;
+    private String url;
+    private double latency;
+    private double throughput;
+    private int failures;
+    private boolean selected;
+    private long updated;
+}
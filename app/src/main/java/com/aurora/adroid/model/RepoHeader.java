@@ -32,6 +32,10 @@ public class RepoHeader implements Comparable<RepoHeader> {
     @NotNull
     private String repoId = "00";
     private Long lastModified;
+    private String etag;
+    /*SHA-256 of the last imported JAR and the repo timestamp it carried*/
+    private String jarHash;
+    private Long timestamp;
 
     @Override
     public boolean equals(Object obj) {
@@ -0,0 +1,51 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.model;
+
+import lombok.Data;
+
+/**
+ * Where the time of a single repo sync went, stages are wall times in milliseconds.
+ * Extract is the time spent inflating and verifying the JAR entry, parse excludes
+ * it as well as the time the parser waited on the writer.
+ */
+@Data
+public class RepoReport {
+    private String repoId;
+    private String repoName;
+    private boolean synced;
+    private boolean incremental;
+    private long checkMillis;
+    private long downloadMillis;
+    private long extractMillis;
+    private long parseMillis;
+    private long writeMillis;
+    private long bytesDownloaded;
+    private long bytesDecompressed;
+    private int appsParsed;
+    private int packagesParsed;
+    private int rowsWritten;
+    private long peakHeap;
+
+    public void updatePeakHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+    }
+}
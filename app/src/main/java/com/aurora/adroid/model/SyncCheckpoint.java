@@ -0,0 +1,40 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.model;
+
+import lombok.Data;
+
+/**
+ * Last completed stage of a repo within the running sync, along with the validators
+ * of the index being imported, which are stored only once the repo is committed.
+ */
+@Data
+public class SyncCheckpoint {
+    private String repoId;
+    private Stage stage;
+    private RepoHeader repoHeader;
+    private long timestamp;
+
+    public enum Stage {
+        DOWNLOADED,
+        IMPORTED,
+        COMMITTED
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Structured summary of one sync run, totals are summed up from the repo reports on finish.
+ */
+@Data
+public class SyncReport {
+    private long startTime;
+    private long totalMillis;
+    private long checkMillis;
+    private long bytesDownloaded;
+    private long bytesDecompressed;
+    private int appsParsed;
+    private int packagesParsed;
+    private int rowsWritten;
+    private long peakHeap;
+    private int reposSynced;
+    private int reposFailed;
+    private int cacheHits;
+    private int cacheMisses;
+    private int pooledStrings;
+    private int reposDeferred;
+    private long bytesDeferred;
+    private long poolHits;
+    private final List<RepoReport> repoReportList = new ArrayList<>();
+
+    public SyncReport() {
+        this.startTime = System.currentTimeMillis();
+    }
+
+    public synchronized RepoReport getRepoReport(StaticRepo staticRepo) {
+        for (RepoReport repoReport : repoReportList)
+            if (repoReport.getRepoId().equals(staticRepo.getRepoId()))
+                return repoReport;
+
+        final RepoReport repoReport = new RepoReport();
+        repoReport.setRepoId(staticRepo.getRepoId());
+        repoReport.setRepoName(staticRepo.getRepoName());
+        repoReportList.add(repoReport);
+        return repoReport;
+    }
+
+    public synchronized void finish() {
+        totalMillis = System.currentTimeMillis() - startTime;
+        for (RepoReport repoReport : repoReportList) {
+            bytesDownloaded += repoReport.getBytesDownloaded();
+            bytesDecompressed += repoReport.getBytesDecompressed();
+            appsParsed += repoReport.getAppsParsed();
+            packagesParsed += repoReport.getPackagesParsed();
+            rowsWritten += repoReport.getRowsWritten();
+            peakHeap = Math.max(peakHeap, repoReport.getPeakHeap());
+            if (repoReport.isSynced())
+                reposSynced++;
+            else if (repoReport.getDownloadMillis() > 0)
+                reposFailed++;
+        }
+    }
+
+    public float getCacheHitRate() {
+        final int requests = cacheHits + cacheMisses;
+        return requests == 0 ? 0 : (float) cacheHits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d repos synced, %d failed in %d ms (check %d ms), %d bytes downloaded, " +
+                        "%d bytes decompressed, %d apps & %d packages parsed, %d rows written, peak heap %d bytes, " +
+                        "http cache %d hits / %d misses, %d pooled strings shared %d times, " +
+                        "%d repos deferred saving %d bytes",
+                reposSynced, reposFailed, totalMillis, checkMillis, bytesDownloaded, bytesDecompressed,
+                appsParsed, packagesParsed, rowsWritten, peakHeap, cacheHits, cacheMisses, pooledStrings, poolHits,
+                reposDeferred, bytesDeferred);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.model.adapter;
+
+import com.aurora.adroid.model.App;
+import com.aurora.adroid.model.v2.Localization;
+import com.aurora.adroid.util.StringPool;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class AppTypeAdapter extends ModelTypeAdapter<App> {
+
+    private final PackageTypeAdapter packageTypeAdapter;
+    private final LocalizationTypeAdapter localizationTypeAdapter;
+
+    public AppTypeAdapter(PackageTypeAdapter packageTypeAdapter, LocalizationTypeAdapter localizationTypeAdapter) {
+        this(packageTypeAdapter, localizationTypeAdapter, null);
+    }
+
+    public AppTypeAdapter(PackageTypeAdapter packageTypeAdapter, LocalizationTypeAdapter localizationTypeAdapter,
+                          StringPool stringPool) {
+        super(stringPool);
+        this.packageTypeAdapter = packageTypeAdapter;
+        this.localizationTypeAdapter = localizationTypeAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter writer, App app) throws IOException {
+        if (app == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        writer.name("repoId").value(app.getRepoId());
+        writer.name("packageName").value(app.getPackageName());
+        writer.name("added").value(app.getAdded());
+        writer.name("authorName").value(app.getAuthorName());
+        writer.name("authorEmail").value(app.getAuthorEmail());
+        writer.name("bitcoin").value(app.getBitcoin());
+        writeStringList(writer, "categories", app.getCategories());
+        writer.name("description").value(app.getDescription());
+        writer.name("donate").value(app.getDonate());
+        writer.name("icon").value(app.getIcon());
+        writer.name("issueTracker").value(app.getIssueTracker());
+        writer.name("lastUpdated").value(app.getLastUpdated());
+        writer.name("license").value(app.getLicense());
+        writer.name("name").value(app.getName());
+        writer.name("sourceCode").value(app.getSourceCode());
+        writer.name("suggestedVersionCode").value(app.getSuggestedVersionCode());
+        writer.name("suggestedVersionName").value(app.getSuggestedVersionName());
+        writer.name("summary").value(app.getSummary());
+        writer.name("repoName").value(app.getRepoName());
+        writer.name("repoUrl").value(app.getRepoUrl());
+        writer.name("webSite").value(app.getWebSite());
+        writer.name("pkg");
+        packageTypeAdapter.write(writer, app.getPkg());
+        writer.name("localized");
+        writeLocalizationMap(writer, app.getLocalizationMap());
+        writeStringList(writer, "antiFeatures", app.getAntiFeatures());
+        writer.name("contentHash").value(app.getContentHash());
+        writer.endObject();
+    }
+
+    @Override
+    public App read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        final App app = new App();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "repoId":
+                    final String repoId = readString(reader);
+                    if (repoId != null)
+                        app.setRepoId(repoId);
+                    break;
+                case "packageName":
+                    final String packageName = readString(reader);
+                    if (packageName != null)
+                        app.setPackageName(packageName);
+                    break;
+                case "added":
+                    app.setAdded(readLong(reader));
+                    break;
+                case "authorName":
+                    app.setAuthorName(readPooledString(reader));
+                    break;
+                case "authorEmail":
+                    app.setAuthorEmail(readString(reader));
+                    break;
+                case "bitcoin":
+                    app.setBitcoin(readString(reader));
+                    break;
+                case "categories":
+                    app.setCategories(readPooledStringList(reader));
+                    break;
+                case "description":
+                    app.setDescription(readString(reader));
+                    break;
+                case "donate":
+                    app.setDonate(readString(reader));
+                    break;
+                case "icon":
+                    app.setIcon(readString(reader));
+                    break;
+                case "issueTracker":
+                    app.setIssueTracker(readString(reader));
+                    break;
+                case "lastUpdated":
+                    app.setLastUpdated(readLong(reader));
+                    break;
+                case "license":
+                    app.setLicense(readPooledString(reader));
+                    break;
+                case "name":
+                    app.setName(readString(reader));
+                    break;
+                case "sourceCode":
+                    app.setSourceCode(readString(reader));
+                    break;
+                case "suggestedVersionCode":
+                    final Long suggestedVersionCode = readLong(reader);
+                    if (suggestedVersionCode != null)
+                        app.setSuggestedVersionCode(suggestedVersionCode);
+                    break;
+                case "suggestedVersionName":
+                    app.setSuggestedVersionName(readString(reader));
+                    break;
+                case "summary":
+                    app.setSummary(readString(reader));
+                    break;
+                case "repoName":
+                    app.setRepoName(readString(reader));
+                    break;
+                case "repoUrl":
+                    app.setRepoUrl(readString(reader));
+                    break;
+                case "webSite":
+                    app.setWebSite(readString(reader));
+                    break;
+                case "pkg":
+                    app.setPkg(packageTypeAdapter.read(reader));
+                    break;
+                case "localized":
+                    app.setLocalizationMap(readLocalizationMap(reader));
+                    break;
+                case "antiFeatures":
+                    app.setAntiFeatures(readPooledStringList(reader));
+                    break;
+                case "contentHash":
+                    app.setContentHash(readString(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return app;
+    }
+
+    private HashMap<String, Localization> readLocalizationMap(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        final HashMap<String, Localization> localizationMap = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext())
+            localizationMap.put(reader.nextName(), localizationTypeAdapter.read(reader));
+        reader.endObject();
+        return localizationMap;
+    }
+
+    private void writeLocalizationMap(JsonWriter writer, Map<String, Localization> localizationMap) throws IOException {
+        if (localizationMap == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        for (Map.Entry<String, Localization> entry : localizationMap.entrySet()) {
+            writer.name(entry.getKey());
+            localizationTypeAdapter.write(writer, entry.getValue());
+        }
+        writer.endObject();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.model.adapter;
+
+import com.aurora.adroid.model.v2.Localization;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+public class LocalizationTypeAdapter extends ModelTypeAdapter<Localization> {
+
+    @Override
+    public void write(JsonWriter writer, Localization localization) throws IOException {
+        if (localization == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        writer.name("featureGraphic").value(localization.getFeatureGraphic());
+        writer.name("icon").value(localization.getIcon());
+        writeStringList(writer, "phoneScreenshots", localization.getPhoneScreenshots());
+        writeStringList(writer, "sevenInchScreenshots", localization.getSevenInchScreenshots());
+        writeStringList(writer, "tenInchScreenshots", localization.getTenInchScreenshots());
+        writeStringList(writer, "tvScreenshots", localization.getTvScreenshots());
+        writeStringList(writer, "wearScreenshots", localization.getWearScreenshots());
+        writer.name("summary").value(localization.getSummary());
+        writer.name("whatsNew").value(localization.getChangelog());
+        writer.name("description").value(localization.getDescription());
+        writer.name("name").value(localization.getName());
+        writer.endObject();
+    }
+
+    @Override
+    public Localization read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        final Localization localization = new Localization();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "featureGraphic":
+                    localization.setFeatureGraphic(readString(reader));
+                    break;
+                case "icon":
+                    localization.setIcon(readString(reader));
+                    break;
+                case "phoneScreenshots":
+                    localization.setPhoneScreenshots(readStringList(reader));
+                    break;
+                case "sevenInchScreenshots":
+                    localization.setSevenInchScreenshots(readStringList(reader));
+                    break;
+                case "tenInchScreenshots":
+                    localization.setTenInchScreenshots(readStringList(reader));
+                    break;
+                case "tvScreenshots":
+                    localization.setTvScreenshots(readStringList(reader));
+                    break;
+                case "wearScreenshots":
+                    localization.setWearScreenshots(readStringList(reader));
+                    break;
+                case "summary":
+                    localization.setSummary(readString(reader));
+                    break;
+                case "whatsNew":
+                    localization.setChangelog(readString(reader));
+                    break;
+                case "description":
+                    localization.setDescription(readString(reader));
+                    break;
+                case "name":
+                    localization.setName(readString(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return localization;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.model.adapter;
+
+import com.aurora.adroid.util.StringPool;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Field readers & writers shared by the model adapters. They follow Gson's reflective
+ * rules, an explicit null clears an object field, nulls are never written out.
+ * <p>
+ * Given a {@link StringPool}, the repetitive fields are swapped for their pooled copy
+ * right as they are read, before the parsed object holds on to them.
+ */
+abstract class ModelTypeAdapter<T> extends TypeAdapter<T> {
+
+    private final StringPool stringPool;
+
+    ModelTypeAdapter() {
+        this(null);
+    }
+
+    ModelTypeAdapter(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    String readPooledString(JsonReader reader) throws IOException {
+        final String value = readString(reader);
+        return stringPool == null ? value : stringPool.intern(value);
+    }
+
+    List<String> readPooledStringList(JsonReader reader) throws IOException {
+        final List<String> valueList = readStringList(reader);
+        if (stringPool != null)
+            stringPool.internAll(valueList);
+        return valueList;
+    }
+
+    List<List<String>> readPooledNestedStringList(JsonReader reader) throws IOException {
+        final List<List<String>> valueList = readNestedStringList(reader);
+        if (stringPool != null && valueList != null)
+            for (List<String> value : valueList)
+                stringPool.internAll(value);
+        return valueList;
+    }
+
+    static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    static Long readLong(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextLong();
+    }
+
+    static Integer readInteger(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextInt();
+    }
+
+    static List<String> readStringList(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        final List<String> valueList = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext())
+            valueList.add(readString(reader));
+        reader.endArray();
+        return valueList;
+    }
+
+    static List<List<String>> readNestedStringList(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        final List<List<String>> valueList = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext())
+            valueList.add(readStringList(reader));
+        reader.endArray();
+        return valueList;
+    }
+
+    static void writeStringList(JsonWriter writer, String name, List<String> valueList) throws IOException {
+        writer.name(name);
+        writeStringList(writer, valueList);
+    }
+
+    static void writeStringList(JsonWriter writer, List<String> valueList) throws IOException {
+        if (valueList == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginArray();
+        for (String value : valueList)
+            writer.value(value);
+        writer.endArray();
+    }
+
+    static void writeNestedStringList(JsonWriter writer, String name, List<List<String>> valueList) throws IOException {
+        writer.name(name);
+        if (valueList == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginArray();
+        for (List<String> value : valueList)
+            writeStringList(writer, value);
+        writer.endArray();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.model.adapter;
+
+import com.aurora.adroid.model.Package;
+import com.aurora.adroid.util.StringPool;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+public class PackageTypeAdapter extends ModelTypeAdapter<Package> {
+
+    public PackageTypeAdapter() {
+        super();
+    }
+
+    public PackageTypeAdapter(StringPool stringPool) {
+        super(stringPool);
+    }
+
+    @Override
+    public void write(JsonWriter writer, Package pkg) throws IOException {
+        if (pkg == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        writer.name("apkName").value(pkg.getApkName());
+        writer.name("added").value(pkg.getAdded());
+        writer.name("hash").value(pkg.getHash());
+        writer.name("hashType").value(pkg.getHashType());
+        writer.name("minSdkVersion").value(pkg.getMinSdkVersion());
+        writeStringList(writer, "nativecode", pkg.getNativecode());
+        writer.name("packageName").value(pkg.getPackageName());
+        writer.name("sig").value(pkg.getSig());
+        writer.name("signer").value(pkg.getSigner());
+        writer.name("size").value(pkg.getSize());
+        writer.name("srcname").value(pkg.getSrcname());
+        writer.name("targetSdkVersion").value(pkg.getTargetSdkVersion());
+        writeNestedStringList(writer, "uses-permission", pkg.getUsesPermission());
+        writer.name("versionCode").value(pkg.getVersionCode());
+        writer.name("versionName").value(pkg.getVersionName());
+        writeStringList(writer, "antiFeatures", pkg.getAntiFeatures());
+        writer.endObject();
+    }
+
+    @Override
+    public Package read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        final Package pkg = new Package();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "apkName":
+                    pkg.setApkName(readString(reader));
+                    break;
+                case "added":
+                    pkg.setAdded(readLong(reader));
+                    break;
+                case "hash":
+                    pkg.setHash(readString(reader));
+                    break;
+                case "hashType":
+                    pkg.setHashType(readPooledString(reader));
+                    break;
+                case "minSdkVersion":
+                    pkg.setMinSdkVersion(readPooledString(reader));
+                    break;
+                case "nativecode":
+                    pkg.setNativecode(readPooledStringList(reader));
+                    break;
+                case "packageName":
+                    pkg.setPackageName(readString(reader));
+                    break;
+                case "sig":
+                    pkg.setSig(readPooledString(reader));
+                    break;
+                case "signer":
+                    pkg.setSigner(readPooledString(reader));
+                    break;
+                case "size":
+                    pkg.setSize(readLong(reader));
+                    break;
+                case "srcname":
+                    pkg.setSrcname(readString(reader));
+                    break;
+                case "targetSdkVersion":
+                    pkg.setTargetSdkVersion(readPooledString(reader));
+                    break;
+                case "uses-permission":
+                    pkg.setUsesPermission(readPooledNestedStringList(reader));
+                    break;
+                case "versionCode":
+                    pkg.setVersionCode(readLong(reader));
+                    break;
+                case "versionName":
+                    pkg.setVersionName(readString(reader));
+                    break;
+                case "antiFeatures":
+                    pkg.setAntiFeatures(readPooledStringList(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return pkg;
+    }
+}
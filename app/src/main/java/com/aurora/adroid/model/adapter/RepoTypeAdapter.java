@@ -0,0 +1,96 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.model.adapter;
+
+import com.aurora.adroid.model.v2.Repo;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+public class RepoTypeAdapter extends ModelTypeAdapter<Repo> {
+
+    @Override
+    public void write(JsonWriter writer, Repo repo) throws IOException {
+        if (repo == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject();
+        writer.name("timestamp").value(repo.getTimestamp());
+        writer.name("version").value(repo.getVersion());
+        writer.name("maxage").value(repo.getMaxage());
+        writer.name("name").value(repo.getName());
+        writer.name("icon").value(repo.getIcon());
+        writer.name("address").value(repo.getAddress());
+        writer.name("description").value(repo.getDescription());
+        writeStringList(writer, "mirrors", repo.getMirrors());
+        writer.name("repoId").value(repo.getRepoId());
+        writer.endObject();
+    }
+
+    @Override
+    public Repo read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        final Repo repo = new Repo();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "timestamp":
+                    repo.setTimestamp(readLong(reader));
+                    break;
+                case "version":
+                    repo.setVersion(readInteger(reader));
+                    break;
+                case "maxage":
+                    repo.setMaxage(readInteger(reader));
+                    break;
+                case "name":
+                    repo.setName(readString(reader));
+                    break;
+                case "icon":
+                    repo.setIcon(readString(reader));
+                    break;
+                case "address":
+                    repo.setAddress(readString(reader));
+                    break;
+                case "description":
+                    repo.setDescription(readString(reader));
+                    break;
+                case "mirrors":
+                    repo.setMirrors(readStringList(reader));
+                    break;
+                case "repoId":
+                    final String repoId = readString(reader);
+                    if (repoId != null)
+                        repo.setRepoId(repoId);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return repo;
+    }
+}
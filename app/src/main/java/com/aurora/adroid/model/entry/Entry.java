@@ -0,0 +1,47 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.model.entry;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * entry.json of an index-v2 repo, points to the full index and to the diffs
+ * that bring an older index, keyed by its timestamp, up to this one.
+ */
+@Data
+public class Entry {
+    @SerializedName("timestamp")
+    @Expose
+    private Long timestamp;
+    @SerializedName("version")
+    @Expose
+    private Long version;
+    @SerializedName("index")
+    @Expose
+    private EntryFile index;
+    @SerializedName("diffs")
+    @Expose
+    private Map<String, EntryFile> diffs;
+}
@@ -43,4 +43,5 @@ public class AppPackage {
     @NotNull
     private String packageName = StringUtils.EMPTY;
     private List<Package> packageList;
+    private String contentHash;
 }
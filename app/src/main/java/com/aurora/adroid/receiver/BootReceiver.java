@@ -23,22 +23,17 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 
-import com.aurora.adroid.Constants;
 import com.aurora.adroid.util.Util;
 
 
 public class BootReceiver extends BroadcastReceiver {
 
-    static private int getUpdateInterval(Context context) {
-        return Util.parseInt(Util.getPrefs(context)
-                .getString(Constants.PREFERENCE_UPDATES_INTERVAL, "-1"), -1);
-    }
-
     @Override
     public void onReceive(Context context, Intent intent) {
         if (!Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
             return;
         }
-        UpdatesReceiver.setUpdatesInterval(context.getApplicationContext(), getUpdateInterval(context));
+        /*Persisted jobs survive the reboot, this only reschedules if the job is gone*/
+        UpdatesReceiver.setUpdatesInterval(context.getApplicationContext(), Util.getUpdatesInterval(context));
     }
-}
\ No newline at end of file
+}
@@ -24,41 +24,35 @@ import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
 
-import com.aurora.adroid.service.SyncService;
+import com.aurora.adroid.service.SyncJobService;
 import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.Util;
 
-import java.util.Calendar;
-import java.util.concurrent.TimeUnit;
-
+/**
+ * Periodic syncs are run by {@link SyncJobService}, this receiver is only left to
+ * catch alarms set by older versions and move them over to JobScheduler.
+ */
 public class UpdatesReceiver extends BroadcastReceiver {
     static public void setUpdatesInterval(Context context, int interval) {
+        cancelLegacyAlarm(context);
+        SyncJobService.schedulePeriodicSync(context, interval);
+        Log.i("Periodic update preferences updated");
+    }
+
+    static private void cancelLegacyAlarm(Context context) {
         final Intent intent = new Intent(context, UpdatesReceiver.class);
-        final PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent, 0);
+        final PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_NO_CREATE);
         final AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager != null) {
+        if (alarmManager != null && pendingIntent != null) {
             alarmManager.cancel(pendingIntent);
-            if (interval > 0) {
-                alarmManager.setInexactRepeating(
-                        AlarmManager.RTC_WAKEUP,
-                        Calendar.getInstance().getTimeInMillis(),
-                        TimeUnit.DAYS.toMillis(interval),
-                        pendingIntent
-                );
-            }
+            pendingIntent.cancel();
         }
-        Log.i("Periodic update preferences updated");
     }
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        Log.i("Checking repo updates");
-        Intent repoSyncIntent = new Intent(context, SyncService.class);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            context.startForegroundService(repoSyncIntent);
-        } else {
-            context.startService(repoSyncIntent);
-        }
+        Log.i("Legacy update alarm, moving it to JobScheduler");
+        setUpdatesInterval(context.getApplicationContext(), Util.getUpdatesInterval(context));
     }
 }
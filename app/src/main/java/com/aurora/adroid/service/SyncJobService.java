@@ -0,0 +1,205 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.service;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+import com.aurora.adroid.AuroraApplication;
+import com.aurora.adroid.util.DatabaseUtil;
+import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.Util;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Starts {@link SyncService} from JobScheduler, so a sync can wait for the network
+ * conditions it needs instead of running whenever it was triggered.
+ * <p>
+ * A job holds on until the sync it started, or the one already running, reports its
+ * outcome. A failed sync hands the job back for an exponential backoff, a sync that
+ * ran recently enough satisfies a periodic job without starting another one.
+ */
+public class SyncJobService extends JobService {
+
+    private static final int JOB_PERIODIC_SYNC = 1000;
+    private static final int JOB_PENDING_SYNC = 1001;
+    private static final int JOB_MANUAL_SYNC = 1002;
+
+    private static final long INITIAL_BACKOFF = TimeUnit.MINUTES.toMillis(30);
+
+    /*Periodic and pending jobs may both be waiting on the same sync*/
+    private final Map<Integer, Disposable> disposableMap = new HashMap<>();
+
+    /**
+     * Schedules the periodic sync, boot, the preferences and app starts may all call
+     * this, an identical job already pending is left alone so its period is not reset.
+     *
+     * @param interval days between syncs, 0 or less cancels the periodic sync
+     */
+    public static void schedulePeriodicSync(Context context, int interval) {
+        final JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null)
+            return;
+
+        if (interval <= 0) {
+            jobScheduler.cancel(JOB_PERIODIC_SYNC);
+            Log.i("Periodic sync cancelled");
+            return;
+        }
+
+        final boolean idle = Util.isSyncIdleRequired(context);
+        final JobInfo.Builder builder = new JobInfo.Builder(JOB_PERIODIC_SYNC, new ComponentName(context, SyncJobService.class))
+                .setPeriodic(TimeUnit.DAYS.toMillis(interval))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setRequiresCharging(Util.isSyncChargingRequired(context))
+                .setRequiresDeviceIdle(idle)
+                .setPersisted(true);
+
+        /*Idle jobs may not carry a backoff policy, a failed one is retried in the next idle window*/
+        if (!idle)
+            builder.setBackoffCriteria(INITIAL_BACKOFF, JobInfo.BACKOFF_POLICY_EXPONENTIAL);
+
+        final JobInfo jobInfo = builder.build();
+
+        for (JobInfo pendingJob : jobScheduler.getAllPendingJobs()) {
+            if (pendingJob.getId() == JOB_PERIODIC_SYNC
+                    && pendingJob.getIntervalMillis() == jobInfo.getIntervalMillis()
+                    && pendingJob.isRequireCharging() == jobInfo.isRequireCharging()
+                    && pendingJob.isRequireDeviceIdle() == jobInfo.isRequireDeviceIdle()) {
+                Log.i("Periodic sync already scheduled");
+                return;
+            }
+        }
+
+        jobScheduler.schedule(jobInfo);
+        Log.i("Periodic sync scheduled every %d days", interval);
+    }
+
+    /*Runs the deferred index downloads once an unmetered network is around*/
+    public static void schedulePendingSync(Context context) {
+        final JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null)
+            return;
+
+        final JobInfo jobInfo = new JobInfo.Builder(JOB_PENDING_SYNC, new ComponentName(context, SyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setBackoffCriteria(INITIAL_BACKOFF, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build();
+        jobScheduler.schedule(jobInfo);
+        Log.i("Pending sync scheduled for the next unmetered network");
+    }
+
+    /*Syncs asked for from the UI, run as soon as there is a network and not retried on failure*/
+    public static void scheduleSync(Context context) {
+        final JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null)
+            return;
+
+        final JobInfo jobInfo = new JobInfo.Builder(JOB_MANUAL_SYNC, new ComponentName(context, SyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .build();
+        jobScheduler.schedule(jobInfo);
+        Log.i("Sync scheduled");
+    }
+
+    public static void cancelPendingSync(Context context) {
+        final JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler != null)
+            jobScheduler.cancel(JOB_PENDING_SYNC);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        if (params.getJobId() == JOB_PERIODIC_SYNC && isRecentlySynced()) {
+            Log.i("Periodic sync skipped, catalog synced recently");
+            return false;
+        }
+
+        /*Wait for the outcome before starting, a fast sync may finish right away*/
+        disposableMap.put(params.getJobId(), AuroraApplication.getRxBus().getBus()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(event -> {
+                    switch (event.getType()) {
+                        case SYNC_COMPLETED:
+                        case SYNC_CANCELLED:
+                        case SYNC_EMPTY:
+                            finishJob(params, false);
+                            break;
+                        case SYNC_FAILED:
+                            final boolean reschedule = params.getJobId() != JOB_MANUAL_SYNC;
+                            if (reschedule)
+                                Log.i("Sync failed, job %d backs off", params.getJobId());
+                            finishJob(params, reschedule);
+                            break;
+                    }
+                }));
+
+        if (SyncService.isServiceRunning()) {
+            Log.i("Sync already running, job %d joins it", params.getJobId());
+        } else {
+            final Intent intent = new Intent(this, SyncService.class);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                startForegroundService(intent);
+            } else {
+                startService(intent);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        /*The sync itself runs on in its own foreground service*/
+        dispose(params);
+        return false;
+    }
+
+    private void finishJob(JobParameters params, boolean reschedule) {
+        dispose(params);
+        jobFinished(params, reschedule);
+    }
+
+    private void dispose(JobParameters params) {
+        final Disposable disposable = disposableMap.remove(params.getJobId());
+        if (disposable != null)
+            disposable.dispose();
+    }
+
+    /*A manual sync within the last half period makes the periodic one redundant*/
+    private boolean isRecentlySynced() {
+        final long interval = TimeUnit.DAYS.toMillis(Util.getUpdatesInterval(this));
+        final long elapsed = Calendar.getInstance().getTimeInMillis() - DatabaseUtil.getDatabaseSyncTime(this);
+        return DatabaseUtil.isDatabaseAvailable(this) && elapsed >= 0 && elapsed < interval / 2;
+    }
+}
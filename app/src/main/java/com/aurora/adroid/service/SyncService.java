@@ -26,32 +26,49 @@ import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.os.IBinder;
+import android.os.SystemClock;
 
 import androidx.core.app.NotificationCompat;
 
 import com.aurora.adroid.AuroraApplication;
 import com.aurora.adroid.Constants;
 import com.aurora.adroid.R;
+import com.aurora.adroid.database.IndexWriter;
 import com.aurora.adroid.download.DownloadManager;
+import com.aurora.adroid.download.IndexHedger;
 import com.aurora.adroid.event.Event;
 import com.aurora.adroid.event.EventType;
 import com.aurora.adroid.event.LogEvent;
+import com.aurora.adroid.event.SyncReportEvent;
+import com.aurora.adroid.manager.HttpClientManager;
+import com.aurora.adroid.manager.MirrorManager;
+import com.aurora.adroid.manager.RepoBundle;
 import com.aurora.adroid.manager.RepoListManager;
 import com.aurora.adroid.manager.RepoSyncManager;
+import com.aurora.adroid.manager.SyncCheckpointManager;
+import com.aurora.adroid.manager.SyncReportManager;
+import com.aurora.adroid.model.ImportStats;
+import com.aurora.adroid.model.RepoReport;
 import com.aurora.adroid.model.StaticRepo;
+import com.aurora.adroid.model.SyncCheckpoint;
+import com.aurora.adroid.model.SyncReport;
 import com.aurora.adroid.task.CheckRepoUpdatesTask;
-import com.aurora.adroid.task.ExtractRepoTask;
 import com.aurora.adroid.task.JsonParserTask;
 import com.aurora.adroid.ui.main.AuroraActivity;
 import com.aurora.adroid.util.DatabaseUtil;
 import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.NetworkUtil;
 import com.aurora.adroid.util.PathUtil;
+import com.aurora.adroid.util.StringPool;
+import com.aurora.adroid.util.SyncExecutors;
+import com.aurora.adroid.util.Util;
 import com.tonyodev.fetch2.AbstractFetchGroupListener;
 import com.tonyodev.fetch2.Download;
 import com.tonyodev.fetch2.Error;
 import com.tonyodev.fetch2.Fetch;
 import com.tonyodev.fetch2.FetchGroup;
 import com.tonyodev.fetch2.Request;
+import com.tonyodev.fetch2.Status;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -59,22 +76,59 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.schedulers.Schedulers;
 
+import okhttp3.Cache;
+
 public class SyncService extends Service {
 
+    /*Rough upper bound of heap a single repo import needs while streaming its index*/
+    private static final long HEAP_PER_WORKER = 24 * 1024 * 1024;
+
+    public static final String ACTION_CANCEL = "com.aurora.adroid.action.CANCEL_SYNC";
+
+    /*How long a cancelled sync waits for uncommitted imports to roll back*/
+    private static final long CANCEL_TIMEOUT = 5000;
+
     public static SyncService instance = null;
 
     private Fetch fetch;
     private AbstractFetchGroupListener fetchListener;
     private RepoListManager repoListManager;
+    private RepoSyncManager repoSyncManager;
+    private IndexWriter indexWriter;
+    private boolean shadowSync = false;
+    private final List<StaticRepo> shadowCommitList = new ArrayList<>();
+    private ExecutorService executorService;
+    private int workerCount;
+    private AtomicInteger pendingRepoCount = new AtomicInteger();
+    private AtomicInteger pendingDownloadCount = new AtomicInteger();
+    private AtomicBoolean importStarted = new AtomicBoolean(false);
+    private AtomicBoolean cancelled = new AtomicBoolean(false);
+    private boolean syncStarted = false;
+    private boolean deferDownloads = false;
+    private boolean downloadsDeferred = false;
+    private final ImportStats importStats = new ImportStats();
+    private SyncReport syncReport;
+    private StringPool stringPool;
+    private int cacheHitBaseline;
+    private int cacheRequestBaseline;
+    private SyncCheckpointManager checkpointManager;
+    private CheckRepoUpdatesTask checkRepoUpdatesTask;
+    private IndexHedger indexHedger;
     private CompositeDisposable disposable = new CompositeDisposable();
 
     public static boolean isServiceRunning() {
@@ -85,8 +139,29 @@ public class SyncService extends Service {
         }
     }
 
+    /**
+     * Stops a running sync, in-flight downloads are dropped and repos not yet committed are
+     * rolled back. Repos that already committed stay in the catalog.
+     */
+    public static void cancel(Context context) {
+        if (!isServiceRunning())
+            return;
+        final Intent intent = new Intent(context, SyncService.class);
+        intent.setAction(ACTION_CANCEL);
+        context.startService(intent);
+    }
+
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_CANCEL.equals(intent.getAction())) {
+            if (syncStarted)
+                cancelSync();
+            else
+                destroyService();
+        } else if (!syncStarted) {
+            syncStarted = true;
+            fetchRepo();
+        }
         return START_STICKY;
     }
 
@@ -96,7 +171,6 @@ public class SyncService extends Service {
         instance = this;
         repoListManager = new RepoListManager(this);
         startForeground(1337, getNotificationBuilder().build());
-        fetchRepo();
     }
 
     private void sendNotification(NotificationType type) {
@@ -133,6 +207,17 @@ public class SyncService extends Service {
                 bigTextStyle.bigText(getString(R.string.sync_failed));
                 builder.setCategory(Notification.CATEGORY_STATUS);
                 break;
+            case CANCELLED:
+                builder.setOngoing(false);
+                bigTextStyle.bigText(getString(R.string.sync_cancelled));
+                builder.setCategory(Notification.CATEGORY_STATUS);
+                break;
+        }
+
+        if (type == NotificationType.INIT || type == NotificationType.DOWNLOAD || type == NotificationType.SYNCING) {
+            builder.addAction(new NotificationCompat.Action.Builder(R.drawable.ic_download_cancel,
+                    getString(R.string.action_cancel),
+                    getCancelIntent()).build());
         }
 
         builder.setStyle(bigTextStyle);
@@ -148,60 +233,219 @@ public class SyncService extends Service {
     public void fetchRepo() {
         sendNotification(NotificationType.INIT);
         fetch = DownloadManager.getFetchInstance(this);
-        disposable.add(Observable.fromCallable(() -> new CheckRepoUpdatesTask(this)
-                .getRepoRequestList())
-                .subscribeOn(Schedulers.io())
+
+        syncReport = new SyncReport();
+        stringPool = new StringPool();
+        final Cache cache = HttpClientManager.getCache(this);
+        cacheHitBaseline = cache.hitCount();
+        cacheRequestBaseline = cache.requestCount();
+        checkpointManager = new SyncCheckpointManager(this);
+
+        /*A first sync always downloads, there is no catalog to fall back on*/
+        deferDownloads = Util.isMeteredSyncDeferred(this)
+                && DatabaseUtil.isDatabaseAvailable(this)
+                && NetworkUtil.isMeteredOrRoaming(this);
+
+        /*Repos an interrupted sync already committed or downloaded are not checked again*/
+        final Set<String> skipRepoIds = new HashSet<>();
+        final List<File> resumeList = new ArrayList<>();
+        for (SyncCheckpoint checkpoint : checkpointManager.getResumableCheckpoints().values()) {
+            final File file = getRepoFile(checkpoint.getRepoId());
+            if (checkpoint.getStage() == SyncCheckpoint.Stage.COMMITTED) {
+                skipRepoIds.add(checkpoint.getRepoId());
+            } else if (file.exists()) {
+                skipRepoIds.add(checkpoint.getRepoId());
+                resumeList.add(file);
+            }
+        }
+
+        if (!skipRepoIds.isEmpty())
+            Log.i("Resuming sync, %d repos skipped, %d to import", skipRepoIds.size(), resumeList.size());
+
+        final long start = SystemClock.elapsedRealtime();
+        disposable.add(Observable.fromCallable(() -> {
+            startWorkers();
+            checkRepoUpdatesTask = new CheckRepoUpdatesTask(this, repoSyncManager, indexWriter, syncReport);
+            checkRepoUpdatesTask.setCheckOnly(deferDownloads);
+            final List<Request> requestList = checkRepoUpdatesTask.getRepoRequestList(skipRepoIds);
+            for (RepoBundle repoBundle : checkRepoUpdatesTask.getIncrementalList())
+                onRepoImported(repoBundle);
+            return requestList;
+        })
+                .subscribeOn(SyncExecutors.getScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(this::enqueueDownloads, throwable -> {
+                .subscribe(requestList -> {
+                    syncReport.setCheckMillis(SystemClock.elapsedRealtime() - start);
+                    if (deferDownloads && !requestList.isEmpty()) {
+                        deferDownloads(requestList);
+                        enqueueDownloads(new ArrayList<>(), resumeList);
+                    } else {
+                        enqueueDownloads(requestList, resumeList);
+                    }
+                }, throwable -> {
+                    Log.e("Error : %s", throwable.getMessage());
+                    stopWorkers();
+                    sendNotification(NotificationType.FAILED);
+                    AuroraApplication.rxNotify(new Event(EventType.SYNC_FAILED));
                     if (!StringUtils.isEmpty(throwable.getMessage())) {
                         AuroraApplication.rxNotify(new LogEvent(throwable.getMessage()));
                     }
+                    /*Also drops whatever the writer staged, a later sync has to start afresh*/
+                    destroyService();
                 }));
     }
 
-    private void enqueueDownloads(List<Request> requestList) {
-        if (requestList.isEmpty()) {
+    /*
+     * Metered or roaming, the checks already told which repos changed. Their indexes are
+     * left for the next unmetered network and the catalog is marked pending until then.
+     */
+    private void deferDownloads(List<Request> requestList) {
+        long bytes = 0;
+        for (Request request : requestList)
+            bytes += checkRepoUpdatesTask.getIndexSize(request.getTag());
+
+        downloadsDeferred = true;
+        syncReport.setReposDeferred(requestList.size());
+        syncReport.setBytesDeferred(bytes);
+        DatabaseUtil.setCatalogPending(this, true);
+        SyncJobService.schedulePendingSync(this);
+
+        Log.i("%d index downloads deferred, %d bytes saved", requestList.size(), bytes);
+        AuroraApplication.rxNotify(new LogEvent(getString(R.string.sync_deferred)));
+        AuroraApplication.rxNotify(new Event(EventType.SYNC_DEFERRED));
+    }
+
+    private void enqueueDownloads(List<Request> requestList, List<File> resumeList) {
+        if (requestList.isEmpty() && resumeList.isEmpty()) {
+            stopWorkers();
             sendNotification(NotificationType.SUCCESS);
-            AuroraApplication.rxNotify(new Event(EventType.SYNC_NO_UPDATES));
+            if (!importStats.hasChanges() && !downloadsDeferred)
+                AuroraApplication.rxNotify(new Event(EventType.SYNC_NO_UPDATES));
             notifyCompleted();
+            return;
+        }
+
+        final boolean pipelined = Util.isSyncPipelined(this);
+        pendingRepoCount.set(requestList.size() + resumeList.size());
+        pendingDownloadCount.set(requestList.size());
+
+        if (requestList.isEmpty()) {
+            if (!pipelined)
+                extractAllRepos();
         } else {
-            fetchListener = getFetchListener();
+            fetchListener = pipelined ? getPipelinedFetchListener() : getFetchListener();
             fetch.addListener(fetchListener);
             fetch.enqueue(requestList, result -> {
                 sendNotification(NotificationType.DOWNLOAD);
                 Log.d("Repo requests enqueued : %d", requestList.size());
             });
+
+            /*Hedging needs per repo completion, so it is limited to pipelined mode*/
+            if (pipelined && Util.isSyncHedged(this)) {
+                indexHedger = new IndexHedger(this, fetch);
+                indexHedger.watch(requestList);
+            }
         }
+
+        /*In batch mode resumed JARs are picked up along with the fresh downloads*/
+        if (pipelined)
+            for (File file : resumeList)
+                extractRepo(file);
+    }
+
+    private void startWorkers() {
+        workerCount = getWorkerCount();
+        executorService = SyncExecutors.newExecutor("sync-parser", workerCount);
+        repoSyncManager = new RepoSyncManager(this);
+        shadowSync = Util.isShadowSyncEnabled(this);
+        indexWriter = new IndexWriter(this, shadowSync);
+    }
+
+    private void stopWorkers() {
+        if (executorService != null)
+            executorService.shutdown();
+        /*A shadow sync still has its repos staged, the writer goes once they are published*/
+        if (indexWriter != null && !shadowSync)
+            indexWriter.shutdown();
+    }
+
+    private Observable<Boolean> importRepo(File file) {
+        return Observable.fromCallable(() -> new JsonParserTask(this, file, indexWriter, syncReport, stringPool).parse())//Stream index from JAR to database
+                .subscribeOn(Schedulers.from(executorService))
+                .map(repoBundle -> {
+                    final StaticRepo staticRepo = repoBundle.getStaticRepo();
+                    onRepoImported(repoBundle);
+                    if (Util.isKeepIndexEnabled(this))
+                        PathUtil.deleteRepoFiles(this, staticRepo.getRepoId() + "." + Constants.JAR);
+                    else
+                        PathUtil.deleteRepoFiles(this, staticRepo.getRepoId());
+                    return repoBundle.isSynced();
+                })
+                .onErrorReturn(throwable -> {
+                    Log.e("Error : %s", throwable.getMessage());
+                    return false;
+                });
+    }
+
+    /*
+     * Full imports and index-v2 diffs applied during the checks end up here alike.
+     */
+    private void onRepoImported(RepoBundle repoBundle) {
+        final StaticRepo staticRepo = repoBundle.getStaticRepo();
+        if (repoBundle.isSynced()) {
+            AuroraApplication.rxNotify(new LogEvent(staticRepo.getRepoName() + " - " + getString(R.string.sync_completed)));
+            Log.i("%s : %s", staticRepo.getRepoName(), repoBundle.getImportStats());
+            synchronized (importStats) {
+                importStats.add(repoBundle.getImportStats());
+            }
+            if (!shadowSync) {
+                markCommitted(staticRepo);
+            } else {
+                /*Only staged so far, the repo is fresh once the whole sync is published*/
+                synchronized (shadowCommitList) {
+                    shadowCommitList.add(staticRepo);
+                }
+            }
+        } else {
+            AuroraApplication.rxNotify(new LogEvent(staticRepo.getRepoName() + " - " + getString(R.string.sync_failed)));
+        }
+    }
+
+    /*
+     * A committed repo is browsable right away, the catalog is marked available with
+     * the first one instead of waiting for the slowest repo of the sync.
+     */
+    private void markCommitted(StaticRepo staticRepo) {
+        repoSyncManager.addToSyncMap(staticRepo);
+
+        final SyncCheckpoint checkpoint = checkpointManager.getCheckpoint(staticRepo.getRepoId());
+        if (checkpoint != null && checkpoint.getRepoHeader() != null)
+            repoSyncManager.addToHeaderMap(checkpoint.getRepoHeader());
+        checkpointManager.setStage(staticRepo.getRepoId(), SyncCheckpoint.Stage.COMMITTED);
+
+        if (!DatabaseUtil.isDatabaseAvailable(this))
+            DatabaseUtil.setDatabaseAvailable(this, true);
+        AuroraApplication.rxNotify(new Event(EventType.REPO_SYNCED, staticRepo.getRepoId()));
     }
 
     private void extractAllRepos() {
         sendNotification(NotificationType.SYNCING);
 
-        final RepoSyncManager repoSyncManager = new RepoSyncManager(this);
         final File repoDirectory = new File(PathUtil.getRepoDirectory(this));
         final File[] files = repoDirectory.listFiles();
 
         if (files == null) {
             sendNotification(NotificationType.FAILED);
+            AuroraApplication.rxNotify(new Event(EventType.SYNC_FAILED));
             Log.e("Error : Repo files not found");
+            stopWorkers();
             destroyService();
         } else {
-            Observable.fromIterable(Arrays.asList(files))
-                    .subscribeOn(Schedulers.io())
+            disposable.add(Observable.fromIterable(Arrays.asList(files))
                     .filter(file -> FilenameUtils.getExtension(file.getName()).equals(Constants.JAR))//Filter JAR files
-                    .map(file -> new ExtractRepoTask(this, file).extract())//Extract the JAR
-                    .map(file -> new JsonParserTask(this, file).parse())//Add RawJSON to database
-                    .map(repoBundle -> {
-                        final StaticRepo staticRepo = repoBundle.getStaticRepo();
-                        if (repoBundle.isSynced()) {
-                            AuroraApplication.rxNotify(new LogEvent(staticRepo.getRepoName() + " - " + getString(R.string.sync_completed)));
-                            repoSyncManager.addToSyncMap(staticRepo);
-                        } else {
-                            AuroraApplication.rxNotify(new LogEvent(staticRepo.getRepoName() + " - " + getString(R.string.sync_failed)));
-                        }
-                        PathUtil.deleteRepoFiles(this, staticRepo.getRepoId());
-                        return repoBundle.isSynced();
-                    })
+                    .filter(this::isImportPending)
+                    .flatMap(this::importRepo, workerCount)
+                    .doFinally(this::stopWorkers)
                     .observeOn(AndroidSchedulers.mainThread())
                     .doOnComplete(this::notifyCompleted)
                     .doOnError(throwable -> {
@@ -209,57 +453,280 @@ public class SyncService extends Service {
                         Log.e("Error : %s", throwable.getMessage());
                     })
                     .onErrorResumeNext(Observable.empty())
-                    .subscribe();
+                    .subscribe());
         }
     }
 
+    /*
+     * Pipelined mode, a repo is imported as soon as its own JAR lands, so a slow
+     * mirror only delays itself. Sync completes once every repo is either imported or failed.
+     */
+    private void extractRepo(File file) {
+        if (importStarted.compareAndSet(false, true))
+            sendNotification(NotificationType.SYNCING);
+
+        disposable.add(importRepo(file)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(synced -> onRepoFinished()));
+    }
+
+    private void onRepoFinished() {
+        if (pendingRepoCount.decrementAndGet() == 0) {
+            fetch.removeGroup(1337);
+            if (indexHedger != null)
+                indexHedger.stop();
+            if (fetchListener != null)
+                fetch.removeListener(fetchListener);
+            stopWorkers();
+            notifyCompleted();
+        }
+    }
+
+    private File getRepoFile(String repoId) {
+        return new File(PathUtil.getRepoDirectory(this) + repoId + "." + Constants.JAR);
+    }
+
+    /*Only JARs completely downloaded by this or an interrupted sync, and not yet committed*/
+    private boolean isImportPending(File file) {
+        final SyncCheckpoint checkpoint = checkpointManager.getCheckpoint(FilenameUtils.getBaseName(file.getName()));
+        return checkpoint != null && checkpoint.getStage() != SyncCheckpoint.Stage.COMMITTED;
+    }
+
+    /*Cache counters are process wide, only what this sync added is reported*/
+    private void recordCacheStats() {
+        final Cache cache = HttpClientManager.getCache(this);
+        final int hits = cache.hitCount() - cacheHitBaseline;
+        final int requests = cache.requestCount() - cacheRequestBaseline;
+        syncReport.setCacheHits(hits);
+        syncReport.setCacheMisses(Math.max(0, requests - hits));
+    }
+
+    private int getWorkerCount() {
+        final long heap = Runtime.getRuntime().maxMemory() / HEAP_PER_WORKER;
+        return SyncExecutors.getParserCount((int) Math.min(Integer.MAX_VALUE, heap));
+    }
+
+    private void cancelSync() {
+        if (!cancelled.compareAndSet(false, true))
+            return;
+
+        Log.i("Sync cancelled");
+        disposable.clear();
+
+        /*Only the sync dispatcher, downloads & images of the rest of the app carry on*/
+        HttpClientManager.getSyncClient(this).dispatcher().cancelAll();
+
+        if (fetch != null) {
+            if (fetchListener != null)
+                fetch.removeListener(fetchListener);
+            if (indexHedger != null)
+                indexHedger.stop();
+            fetch.deleteGroup(1337);
+            fetch.deleteGroup(IndexHedger.HEDGE_GROUP);
+        }
+
+        final IndexWriter writer = indexWriter;
+        stopWorkers();
+        if (writer != null) {
+            writer.cancel();
+            writer.shutdown();
+        }
+
+        Observable.fromCallable(() -> {
+            if (writer != null && !writer.awaitTermination(CANCEL_TIMEOUT))
+                Log.e("Imports did not roll back within %d ms", CANCEL_TIMEOUT);
+            return true;
+        })
+                .subscribeOn(SyncExecutors.getScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(result -> {
+                    sendNotification(NotificationType.CANCELLED);
+                    AuroraApplication.rxNotify(new LogEvent(getString(R.string.sync_cancelled)));
+                    AuroraApplication.rxNotify(new Event(EventType.SYNC_CANCELLED));
+                    destroyService();
+                }, throwable -> {
+                    Log.e("Error : %s", throwable.getMessage());
+                    destroyService();
+                });
+    }
+
     private void notifyCompleted() {
+        if (cancelled.get())
+            return;
+
+        if (!shadowSync) {
+            notifySyncFinished();
+            return;
+        }
+
+        /*
+         * Only the repos that changed were staged, publishing them is one short transaction.
+         * A repo row staged without app changes still carries the header markCommitted saves.
+         */
+        final IndexWriter writer = indexWriter;
+        disposable.add(Observable.fromCallable(() -> {
+            try {
+                if (!writer.publish())
+                    throw new IllegalStateException("Staged repos not published");
+                return true;
+            } finally {
+                writer.shutdown();
+            }
+        })
+                .subscribeOn(SyncExecutors.getScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(published -> {
+                    synchronized (shadowCommitList) {
+                        for (StaticRepo staticRepo : shadowCommitList)
+                            markCommitted(staticRepo);
+                        shadowCommitList.clear();
+                    }
+                    notifySyncFinished();
+                }, throwable -> {
+                    Log.e("Shadow sync publish failed : %s", throwable.getMessage());
+                    checkpointManager.clear();
+                    sendNotification(NotificationType.FAILED);
+                    AuroraApplication.rxNotify(new Event(EventType.SYNC_FAILED));
+                    destroyService();
+                }));
+    }
+
+    private void notifySyncFinished() {
+        checkpointManager.clear();
+        recordCacheStats();
+        syncReport.setPooledStrings(stringPool.size());
+        syncReport.setPoolHits(stringPool.getHits());
+        syncReport.finish();
+        new SyncReportManager(this).addReport(syncReport);
+        AuroraApplication.rxNotify(new SyncReportEvent(syncReport));
+        Log.i("Sync completed : %s", importStats);
+        Log.i("Sync report : %s", syncReport);
         sendNotification(NotificationType.SUCCESS);
         DatabaseUtil.setDatabaseAvailable(this, true);
         DatabaseUtil.setDatabaseSyncTime(this, Calendar.getInstance().getTimeInMillis());
+        if (!downloadsDeferred) {
+            DatabaseUtil.setCatalogPending(this, false);
+            SyncJobService.cancelPendingSync(this);
+        }
         AuroraApplication.rxNotify(new Event(EventType.SYNC_COMPLETED));
         destroyService();
     }
 
+    private void notifyDownloadCompleted(Download download) {
+        final StaticRepo staticRepo = repoListManager.getRepoById(download.getTag());
+        Log.i("Downloaded : %s", download.getUrl());
+        recordDownload(staticRepo, download);
+        checkpointManager.setStage(download.getTag(), SyncCheckpoint.Stage.DOWNLOADED,
+                checkRepoUpdatesTask.getPendingHeader(download.getTag()));
+        AuroraApplication.rxNotify(new LogEvent(staticRepo.getRepoName() + " - " + getString(R.string.download_completed)));
+    }
+
+    private void notifyDownloadFailed(Download download) {
+        final StaticRepo staticRepo = repoListManager.getRepoById(download.getTag());
+        Log.e("Download Failed : %s", download.getUrl());
+        recordDownload(staticRepo, download);
+        AuroraApplication.rxNotify(new LogEvent(staticRepo.getRepoName() + " - " + getString(R.string.download_failed)));
+    }
+
+    private void recordDownload(StaticRepo staticRepo, Download download) {
+        final long millis = System.currentTimeMillis() - download.getCreated();
+        final RepoReport repoReport = syncReport.getRepoReport(staticRepo);
+        repoReport.setDownloadMillis(millis);
+        repoReport.setBytesDownloaded(download.getDownloaded());
+
+        /*Feed the transfer back into the score of the mirror it came from*/
+        if (Util.isMirrorChecked(this, staticRepo.getRepoId())) {
+            final MirrorManager mirrorManager = new MirrorManager(this);
+            final String url = StringUtils.removeEnd(download.getUrl(), "/" + Constants.SIGNED_FILE_NAME);
+            if (download.getStatus() == Status.COMPLETED)
+                mirrorManager.recordTransfer(staticRepo.getRepoId(), url, download.getDownloaded(), millis);
+            else
+                mirrorManager.recordFailure(staticRepo.getRepoId(), url);
+        }
+    }
+
     private AbstractFetchGroupListener getFetchListener() {
         return new AbstractFetchGroupListener() {
             @Override
-            public void onCompleted(@NotNull Download download) {
-                super.onCompleted(download);
-                final StaticRepo staticRepo = repoListManager.getRepoById(download.getTag());
-                Log.i("Downloaded : %s", download.getUrl());
-                AuroraApplication.rxNotify(new LogEvent(staticRepo.getRepoName() + " - " + getString(R.string.download_completed)));
+            public void onCompleted(int groupId, @NotNull Download download, @NotNull FetchGroup fetchGroup) {
+                super.onCompleted(groupId, download, fetchGroup);
+                if (groupId == 1337) {
+                    notifyDownloadCompleted(download);
+                    onDownloadFinished(this);
+                }
             }
 
             @Override
-            public void onError(@NotNull Download download, @NotNull Error error, @Nullable Throwable throwable) {
-                super.onError(download, error, throwable);
-                final StaticRepo staticRepo = repoListManager.getRepoById(download.getTag());
-                Log.e("Download Failed : %s", download.getUrl());
-                AuroraApplication.rxNotify(new LogEvent(staticRepo.getRepoName() + " - " + getString(R.string.download_failed)));
+            public void onError(int groupId, @NotNull Download download, @NotNull Error error, @Nullable Throwable throwable, @NotNull FetchGroup fetchGroup) {
+                super.onError(groupId, download, error, throwable, fetchGroup);
+                if (groupId == 1337) {
+                    notifyDownloadFailed(download);
+                    onDownloadFinished(this);
+                }
             }
+        };
+    }
 
+    /*
+     * Batch mode, repos are extracted once every download either landed or failed. A failed
+     * one is already reported, the repos that did arrive are still imported.
+     */
+    private void onDownloadFinished(AbstractFetchGroupListener listener) {
+        if (pendingDownloadCount.decrementAndGet() == 0) {
+            fetch.removeGroup(1337);
+            fetch.removeListener(listener);
+            extractAllRepos();
+        }
+    }
+
+    private AbstractFetchGroupListener getPipelinedFetchListener() {
+        return new AbstractFetchGroupListener() {
             @Override
             public void onCompleted(int groupId, @NotNull Download download, @NotNull FetchGroup fetchGroup) {
                 super.onCompleted(groupId, download, fetchGroup);
-                if (groupId == 1337 && fetchGroup.getGroupDownloadProgress() == 100) {
-                    extractAllRepos();
-                    fetch.removeGroup(1337);
-                    fetch.removeListener(this);
+                if (indexHedger != null && (groupId == 1337 || groupId == IndexHedger.HEDGE_GROUP)) {
+                    indexHedger.onCompleted(download, getHedgeCallback());
+                } else if (groupId == 1337) {
+                    onIndexDownloaded(download, new File(download.getFile()));
                 }
             }
 
             @Override
             public void onError(int groupId, @NotNull Download download, @NotNull Error error, @Nullable Throwable throwable, @NotNull FetchGroup fetchGroup) {
                 super.onError(groupId, download, error, throwable, fetchGroup);
-                if (groupId == 1337) {
-                    fetch.removeGroup(1337);
-                    fetch.removeListener(this);
+                if (indexHedger != null && (groupId == 1337 || groupId == IndexHedger.HEDGE_GROUP)) {
+                    indexHedger.onError(download, getHedgeCallback());
+                } else if (groupId == 1337) {
+                    onIndexFailed(download);
                 }
             }
         };
     }
 
+    private IndexHedger.Callback getHedgeCallback() {
+        return new IndexHedger.Callback() {
+            @Override
+            public void onCompleted(Download download, File file) {
+                onIndexDownloaded(download, file);
+            }
+
+            @Override
+            public void onFailed(Download download) {
+                onIndexFailed(download);
+            }
+        };
+    }
+
+    private void onIndexDownloaded(Download download, File file) {
+        notifyDownloadCompleted(download);
+        extractRepo(file);
+    }
+
+    private void onIndexFailed(Download download) {
+        notifyDownloadFailed(download);
+        onRepoFinished();
+    }
+
     private NotificationCompat.Builder getNotificationBuilder() {
         return new NotificationCompat.Builder(this, Constants.NOTIFICATION_CHANNEL_GENERAL)
                 .setContentTitle(getString(R.string.sync_service))
@@ -281,10 +748,18 @@ public class SyncService extends Service {
     }
 
     private void destroyService() {
+        if (indexWriter != null)
+            indexWriter.shutdown();
         stopForeground(true);
         stopSelf();
     }
 
+    private PendingIntent getCancelIntent() {
+        final Intent intent = new Intent(this, SyncService.class);
+        intent.setAction(ACTION_CANCEL);
+        return PendingIntent.getService(this, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
     private PendingIntent getContentIntent() {
         Intent intent = new Intent(this, AuroraActivity.class);
         return PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
@@ -295,6 +770,7 @@ public class SyncService extends Service {
         DOWNLOAD,
         SYNCING,
         SUCCESS,
-        FAILED
+        FAILED,
+        CANCELLED
     }
 }
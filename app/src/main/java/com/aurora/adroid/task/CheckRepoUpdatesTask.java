@@ -21,25 +21,44 @@ package com.aurora.adroid.task;
 
 import android.content.Context;
 import android.content.ContextWrapper;
+import android.os.SystemClock;
 
 import com.aurora.adroid.AuroraApplication;
 import com.aurora.adroid.Constants;
 import com.aurora.adroid.R;
+import com.aurora.adroid.database.AppDatabase;
+import com.aurora.adroid.database.IndexWriter;
 import com.aurora.adroid.download.RequestBuilder;
 import com.aurora.adroid.event.LogEvent;
+import com.aurora.adroid.manager.HttpClientManager;
+import com.aurora.adroid.manager.MirrorManager;
+import com.aurora.adroid.manager.RepoBundle;
 import com.aurora.adroid.manager.RepoSyncManager;
 import com.aurora.adroid.model.RepoHeader;
+import com.aurora.adroid.model.RepoReport;
 import com.aurora.adroid.model.StaticRepo;
+import com.aurora.adroid.model.SyncReport;
 import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.SyncExecutors;
 import com.aurora.adroid.util.Util;
 import com.tonyodev.fetch2.Request;
 import com.tonyodev.fetch2core.Extras;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.net.ssl.SSLHandshakeException;
 
@@ -50,16 +69,65 @@ public class CheckRepoUpdatesTask extends ContextWrapper {
 
     private Context context;
     private RepoSyncManager repoSyncManager;
+    private OkHttpClient client;
+    private IncrementalSyncTask incrementalSyncTask;
+    private MirrorManager mirrorManager;
+    private SyncReport syncReport;
+    private final List<RepoBundle> incrementalList = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, RepoHeader> pendingHeaderMap = new ConcurrentHashMap<>();
+    private final Map<String, Long> indexSizeMap = new ConcurrentHashMap<>();
+    private boolean checkOnly = false;
 
-    public CheckRepoUpdatesTask(Context context) {
+    public CheckRepoUpdatesTask(Context context, RepoSyncManager repoSyncManager, IndexWriter indexWriter,
+                                SyncReport syncReport) {
         super(context);
         this.context = context;
-        this.repoSyncManager = new RepoSyncManager(context);
+        this.repoSyncManager = repoSyncManager;
+        this.syncReport = syncReport;
+        this.client = HttpClientManager.getSyncClient(context);
+        this.mirrorManager = new MirrorManager(context);
+        if (Util.isIndexV2Enabled(context))
+            this.incrementalSyncTask = new IncrementalSyncTask(context, client, indexWriter);
+    }
+
+    /*
+     * Repos synced from their index-v2 diff during the checks, they still have to be
+     * committed the way a full import is, see SyncService.
+     */
+    public List<RepoBundle> getIncrementalList() {
+        synchronized (incrementalList) {
+            return new ArrayList<>(incrementalList);
+        }
+    }
+
+    /*
+     * Validators of an index that still has to be downloaded, they are stored only
+     * once that index is committed, so an interrupted sync never marks a repo fresh.
+     */
+    public RepoHeader getPendingHeader(String repoId) {
+        return pendingHeaderMap.get(repoId);
+    }
+
+    /*
+     * Only freshness checks, index-v2 diffs are not applied on the spot as they are
+     * downloads of their own. Used while index downloads are deferred.
+     */
+    public void setCheckOnly(boolean checkOnly) {
+        this.checkOnly = checkOnly;
+    }
+
+    /*Content-Length the server announced for the index of a modified repo, 0 if unknown*/
+    public long getIndexSize(String repoId) {
+        final Long size = indexSizeMap.get(repoId);
+        return size == null ? 0 : size;
     }
 
     public List<Request> getRepoRequestList() {
+        return getRepoRequestList(new HashSet<>());
+    }
+
+    public List<Request> getRepoRequestList(Set<String> skipRepoIds) {
 
-        final RepoSyncManager repoSyncManager = new RepoSyncManager(this);
         final List<StaticRepo> staticRepoList = repoSyncManager.getRepoList();
 
         if (staticRepoList.isEmpty()) {
@@ -67,62 +135,191 @@ public class CheckRepoUpdatesTask extends ContextWrapper {
             staticRepoList.addAll(repoSyncManager.getRepoList());
         }
 
-        final List<Request> requestList = RequestBuilder.buildRequest(this, staticRepoList);
+        final Iterator<StaticRepo> iterator = staticRepoList.iterator();
+        while (iterator.hasNext()) {
+            if (skipRepoIds.contains(iterator.next().getRepoId()))
+                iterator.remove();
+        }
+
         final List<Request> filteredList = new ArrayList<>();
 
-        final OkHttpClient client = new OkHttpClient();
-        for (Request request : requestList) {
-            final Extras extras = request.getExtras();
-            final String repoId = extras.getString(Constants.DOWNLOAD_REPO_ID, StringUtils.EMPTY);
-            final String repoName = extras.getString(Constants.DOWNLOAD_REPO_NAME, StringUtils.EMPTY);
-            final String repoUrl = extras.getString(Constants.DOWNLOAD_REPO_URL, StringUtils.EMPTY);
+        if (staticRepoList.isEmpty())
+            return filteredList;
 
-            if (repoId.isEmpty() || repoName.isEmpty() || repoUrl.isEmpty())
+        final int parallelism = Math.min(Util.getSyncCheckParallelism(this), staticRepoList.size());
+        final ExecutorService executorService = SyncExecutors.newExecutor("sync-check", Math.max(1, parallelism));
+        final List<Future<Request>> futureList = new ArrayList<>();
+
+        try {
+            probeMirrors(executorService, staticRepoList);
+
+            for (Request request : RequestBuilder.buildRequest(this, staticRepoList))
+                futureList.add(executorService.submit(() -> checkForUpdate(request)));
+
+            /*One failed check must not cost the repos after it their sync*/
+            for (Future<Request> future : futureList) {
+                try {
+                    final Request request = future.get();
+                    if (request != null)
+                        filteredList.add(request);
+                } catch (ExecutionException e) {
+                    Log.e("Repo check failed : %s", e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.e(e.getMessage());
+        } finally {
+            executorService.shutdown();
+        }
+        return filteredList;
+    }
+
+    /*
+     * Refreshes stale mirror scores of repos downloading from mirrors, before their requests are built.
+     */
+    private void probeMirrors(ExecutorService executorService, List<StaticRepo> staticRepoList)
+            throws InterruptedException {
+        final AppDatabase appDatabase = AppDatabase.getDatabase(this);
+        final List<Future<?>> futureList = new ArrayList<>();
+
+        for (StaticRepo staticRepo : staticRepoList) {
+            if (!Util.isMirrorChecked(this, staticRepo.getRepoId()))
                 continue;
+            final List<String> urlList = mirrorManager.getCandidates(staticRepo,
+                    appDatabase.repoDao().getRepoByRepoId(staticRepo.getRepoId()));
+            futureList.add(executorService.submit(() -> mirrorManager.probe(client, staticRepo.getRepoId(), urlList)));
+        }
 
-            AuroraApplication.rxNotify(new LogEvent("Checking " + repoName + " for updates"));
+        for (Future<?> future : futureList) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Log.e("Mirror probe failed : %s", e.getMessage());
+            }
+        }
+    }
 
-            final RepoHeader repoHeader = getRepoHeader(extras.getString(Constants.DOWNLOAD_REPO_ID, StringUtils.EMPTY));
+    /*
+     * Sends a conditional HEAD for the index, returns the request if it needs to be downloaded
+     * or null if the stored ETag / Last-Modified validators say the repo is still fresh.
+     */
+    private Request checkForUpdate(Request request) {
+        final Extras extras = request.getExtras();
+        final String repoId = extras.getString(Constants.DOWNLOAD_REPO_ID, StringUtils.EMPTY);
+        final String repoName = extras.getString(Constants.DOWNLOAD_REPO_NAME, StringUtils.EMPTY);
+        final String repoUrl = extras.getString(Constants.DOWNLOAD_REPO_URL, StringUtils.EMPTY);
 
-            final okhttp3.Request okhttpRequest = new okhttp3.Request.Builder()
-                    .url(request.getUrl())
-                    .head()
-                    .build();
+        if (repoId.isEmpty() || repoName.isEmpty() || repoUrl.isEmpty())
+            return null;
 
-            try (Response response = client.newCall(okhttpRequest).execute()) {
-                final String header = response.header("Last-Modified");
+        AuroraApplication.rxNotify(new LogEvent("Checking " + repoName + " for updates"));
 
-                if (header == null) {
-                    filteredList.add(request);
-                    continue;
-                }
+        try {
+            if (syncIncremental(repoId, request))
+                return null;
+        } catch (Exception e) {
+            Log.e("Incremental sync of %s failed, falling back to a full sync : %s", repoName, e.getMessage());
+        }
 
-                final Long lastModified = Util.getMilliFromDate(header, Calendar.getInstance().getTimeInMillis());
-                if (repoHeader.getLastModified() == null) {
-                    repoHeader.setRepoId(repoId);
-                    repoHeader.setLastModified(lastModified);
-                    filteredList.add(request);
-                } else {
-                    if (repoHeader.getLastModified() < lastModified) {
-                        filteredList.add(request);
-                    }
-                    repoHeader.setLastModified(lastModified);
-                }
-                repoSyncManager.addToHeaderMap(repoHeader);
-            } catch (Exception e) {
-                if (e instanceof SSLHandshakeException)
-                    AuroraApplication.rxNotify(new LogEvent(StringUtils.joinWith(StringUtils.SPACE, e.getMessage(), "for", repoName)));
-                else
-                    AuroraApplication.rxNotify(new LogEvent(StringUtils.joinWith(StringUtils.SPACE,
-                            context.getString(R.string.repo_unable_to_reach),
-                            repoName)));
-
-                Log.e(StringUtils.joinWith(StringUtils.SPACE,
+        final RepoHeader repoHeader = getRepoHeader(repoId);
+        final okhttp3.Request.Builder builder = new okhttp3.Request.Builder()
+                .url(request.getUrl())
+                .head();
+
+        if (repoHeader.getEtag() != null)
+            builder.header("If-None-Match", repoHeader.getEtag());
+        if (repoHeader.getLastModified() != null)
+            builder.header("If-Modified-Since", Util.getHttpDate(repoHeader.getLastModified()));
+
+        final long start = SystemClock.elapsedRealtime();
+        try (Response response = client.newCall(builder.build()).execute()) {
+            if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                Log.i("%s not modified", repoName);
+                return null;
+            }
+
+            if (!response.isSuccessful())
+                return request;
+
+            final String etag = response.header("ETag");
+            final String header = response.header("Last-Modified");
+            final Long lastModified = header == null
+                    ? null
+                    : Util.getMilliFromDate(header, Calendar.getInstance().getTimeInMillis());
+
+            final boolean modified;
+            if (etag != null && repoHeader.getEtag() != null)
+                modified = !etag.equals(repoHeader.getEtag());
+            else if (lastModified != null && repoHeader.getLastModified() != null)
+                modified = repoHeader.getLastModified() < lastModified;
+            else
+                modified = true;
+
+            final RepoHeader newHeader = new RepoHeader();
+            newHeader.setRepoId(repoId);
+            newHeader.setEtag(etag);
+            newHeader.setLastModified(lastModified);
+            newHeader.setJarHash(repoHeader.getJarHash());
+            newHeader.setTimestamp(repoHeader.getTimestamp());
+
+            if (modified) {
+                final String contentLength = response.header("Content-Length");
+                if (contentLength != null)
+                    indexSizeMap.put(repoId, Util.parseLong(contentLength, 0));
+                pendingHeaderMap.put(repoId, newHeader);
+                return request;
+            } else {
+                repoSyncManager.addToHeaderMap(newHeader);
+                return null;
+            }
+        } catch (Exception e) {
+            if (e instanceof SSLHandshakeException)
+                AuroraApplication.rxNotify(new LogEvent(StringUtils.joinWith(StringUtils.SPACE, e.getMessage(), "for", repoName)));
+            else
+                AuroraApplication.rxNotify(new LogEvent(StringUtils.joinWith(StringUtils.SPACE,
                         context.getString(R.string.repo_unable_to_reach),
-                        request.getUrl()));
+                        repoName)));
+
+            Log.e(StringUtils.joinWith(StringUtils.SPACE,
+                    context.getString(R.string.repo_unable_to_reach),
+                    request.getUrl()));
+            return null;
+        } finally {
+            final StaticRepo staticRepo = getStaticRepo(repoId);
+            if (staticRepo != null) {
+                final RepoReport repoReport = syncReport.getRepoReport(staticRepo);
+                repoReport.setCheckMillis(repoReport.getCheckMillis() + SystemClock.elapsedRealtime() - start);
             }
         }
-        return filteredList;
+    }
+
+    /*
+     * Repos publishing index-v2 are brought up to date from their diff right here,
+     * returns false if the repo still needs its full index-v1.
+     */
+    private boolean syncIncremental(String repoId, Request request) {
+        if (checkOnly || incrementalSyncTask == null || !repoSyncManager.isSynced(repoId))
+            return false;
+
+        final StaticRepo staticRepo = getStaticRepo(repoId);
+        if (staticRepo == null)
+            return false;
+
+        final String repoUrl = StringUtils.removeEnd(request.getUrl(), "/" + Constants.SIGNED_FILE_NAME);
+        final RepoBundle repoBundle = incrementalSyncTask.sync(staticRepo, repoUrl, syncReport.getRepoReport(staticRepo));
+        if (repoBundle == null || !repoBundle.isSynced())
+            return false;
+
+        incrementalList.add(repoBundle);
+        return true;
+    }
+
+    private StaticRepo getStaticRepo(String repoId) {
+        for (StaticRepo staticRepo : repoSyncManager.getRepoList())
+            if (staticRepo.getRepoId().equals(repoId))
+                return staticRepo;
+        return null;
     }
 
     private RepoHeader getRepoHeader(String repoId) {
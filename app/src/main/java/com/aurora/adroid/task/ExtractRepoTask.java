@@ -23,20 +23,41 @@ import android.content.Context;
 import android.content.ContextWrapper;
 
 import com.aurora.adroid.Constants;
+import com.aurora.adroid.util.CertUtil;
+import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.MeteredInputStream;
 import com.aurora.adroid.util.PathUtil;
+import com.aurora.adroid.util.Util;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.lang3.StringUtils;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.CodeSigner;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
 import java.util.Enumeration;
+import java.util.Locale;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
-public class ExtractRepoTask extends ContextWrapper {
+public class ExtractRepoTask extends ContextWrapper implements Closeable {
 
     private File file;
     private String repoDir;
+    private JarFile jarFile;
+    private JarEntry jarEntry;
+    private InputStream inputStream;
+    private MeteredInputStream meteredStream;
 
     public ExtractRepoTask(Context context, File file) {
         super(context);
@@ -44,19 +65,124 @@ public class ExtractRepoTask extends ContextWrapper {
         this.repoDir = PathUtil.getRepoDirectory(context);
     }
 
-    public File extract() {
-        try {
-            final JarFile jarFile = new JarFile(file);
-            final String fileName = FilenameUtils.getBaseName(file.getName());
-            for (Enumeration<JarEntry> enums = jarFile.entries(); enums.hasMoreElements(); ) {
-                JarEntry entry = enums.nextElement();
-                if (entry.getName().equals(Constants.DATA_FILE_NAME)) {
-                    final File jsonFile = new File(repoDir + fileName + Constants.JSON);
-                    FileUtils.copyToFile(jarFile.getInputStream(entry), jsonFile);
-                }
+    /*
+     * Index is streamed straight out of the JAR, a copy is written to the repo directory
+     * only when explicitly asked for, to help debugging broken repositories.
+     */
+    public InputStream openIndexStream() throws IOException {
+        final InputStream entryStream = openStream(Constants.DATA_FILE_NAME);
+        if (Util.isKeepIndexEnabled(this)) {
+            final File jsonFile = new File(repoDir + FilenameUtils.getBaseName(file.getName()) + Constants.JSON);
+            inputStream = new TeeInputStream(entryStream, FileUtils.openOutputStream(jsonFile), true);
+        }
+        return inputStream;
+    }
+
+    /*
+     * The JAR is opened for verification, so the entry digest is computed by the
+     * JarFile itself while the caller parses the stream, see verify().
+     */
+    public InputStream openStream(String entryName) throws IOException {
+        jarFile = new JarFile(file, true);
+        jarEntry = jarFile.getJarEntry(entryName);
+
+        if (jarEntry == null)
+            throw new FileNotFoundException(entryName + " not found in " + file.getName());
+
+        meteredStream = new MeteredInputStream(jarFile.getInputStream(jarEntry));
+        inputStream = meteredStream;
+        return inputStream;
+    }
+
+    /**
+     * Checks the signature blocks of the JAR against the pinned repo fingerprint, before
+     * anything of the index is used. JarFile already checked those blocks against the
+     * signature file when the entry was opened, {@link #verify(String)} still has to
+     * confirm the entry itself once it was read.
+     *
+     * @param fingerprint SHA-256 fingerprint of the repo signing certificate, may be blank
+     * @throws SecurityException if the JAR is unsigned or a block lacks the pinned certificate
+     */
+    public void verifySigner(String fingerprint) throws IOException {
+        boolean signed = false;
+        final Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            final JarEntry entry = entries.nextElement();
+            if (!isSignatureBlock(entry.getName()))
+                continue;
+
+            signed = true;
+            if (StringUtils.isBlank(fingerprint))
+                continue;
+
+            if (!hasCertificate(entry, fingerprint))
+                throw new SecurityException(file.getName() + " is not signed by the repo fingerprint");
+        }
+
+        if (!signed)
+            throw new SecurityException(file.getName() + " is not signed");
+    }
+
+    /**
+     * Checks the signer of the streamed entry against the pinned repo fingerprint.
+     * Signers are only known once the entry was read to its end, so whatever the
+     * parser left unread is drained first, a tampered entry fails right there.
+     *
+     * @param fingerprint SHA-256 fingerprint of the repo signing certificate, may be blank
+     * @throws SecurityException if the entry is unsigned or signed by someone else
+     */
+    public void verify(String fingerprint) throws IOException {
+        IOUtils.consume(inputStream);
+
+        final CodeSigner[] codeSigners = jarEntry.getCodeSigners();
+        if (codeSigners == null || codeSigners.length == 0)
+            throw new SecurityException(jarEntry.getName() + " in " + file.getName() + " is not signed");
+
+        if (StringUtils.isBlank(fingerprint)) {
+            Log.w("No fingerprint pinned for %s, signer not checked", file.getName());
+            return;
+        }
+
+        for (CodeSigner codeSigner : codeSigners) {
+            final Certificate certificate = codeSigner.getSignerCertPath().getCertificates().get(0);
+            if (certificate instanceof X509Certificate && StringUtils.deleteWhitespace(fingerprint)
+                    .equalsIgnoreCase(CertUtil.getCertificateFingerprint((X509Certificate) certificate, "SHA-256")))
+                return;
+        }
+        throw new SecurityException(file.getName() + " is not signed by the repo fingerprint");
+    }
+
+    private boolean isSignatureBlock(String name) {
+        final String upperName = name.toUpperCase(Locale.ROOT);
+        return upperName.startsWith("META-INF/")
+                && (upperName.endsWith(".RSA") || upperName.endsWith(".DSA") || upperName.endsWith(".EC"));
+    }
+
+    private boolean hasCertificate(JarEntry entry, String fingerprint) throws IOException {
+        try (InputStream blockStream = jarFile.getInputStream(entry)) {
+            final CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+            for (Certificate certificate : certificateFactory.generateCertificates(blockStream)) {
+                if (certificate instanceof X509Certificate && StringUtils.deleteWhitespace(fingerprint)
+                        .equalsIgnoreCase(CertUtil.getCertificateFingerprint((X509Certificate) certificate, "SHA-256")))
+                    return true;
             }
-        } catch (Exception ignored) {
+            return false;
+        } catch (CertificateException e) {
+            throw new SecurityException("Unreadable signature block " + entry.getName() + " in " + file.getName(), e);
         }
-        return file;
+    }
+
+    public long getBytesDecompressed() {
+        return meteredStream == null ? 0 : meteredStream.getByteCount();
+    }
+
+    public long getExtractMillis() {
+        return meteredStream == null ? 0 : meteredStream.getReadMillis();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (jarFile != null)
+            jarFile.close();
     }
 }
@@ -0,0 +1,354 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.task;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.SystemClock;
+
+import com.aurora.adroid.Constants;
+import com.aurora.adroid.database.AppDao;
+import com.aurora.adroid.database.AppPackageDao;
+import com.aurora.adroid.database.IndexWriter;
+import com.aurora.adroid.database.RepoDao;
+import com.aurora.adroid.manager.RepoBundle;
+import com.aurora.adroid.manager.RepoSyncManager;
+import com.aurora.adroid.manager.SyncCheckpointManager;
+import com.aurora.adroid.model.App;
+import com.aurora.adroid.model.ImportStats;
+import com.aurora.adroid.model.Package;
+import com.aurora.adroid.model.RepoHeader;
+import com.aurora.adroid.model.RepoReport;
+import com.aurora.adroid.model.StaticRepo;
+import com.aurora.adroid.model.SyncCheckpoint;
+import com.aurora.adroid.model.entry.Entry;
+import com.aurora.adroid.model.entry.EntryFile;
+import com.aurora.adroid.model.v2.AppPackage;
+import com.aurora.adroid.model.v2.Repo;
+import com.aurora.adroid.util.DigestUtil;
+import com.aurora.adroid.util.GsonUtil;
+import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.MeteredInputStream;
+import com.aurora.adroid.util.PathUtil;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Syncs repos that publish an index-v2 entry by applying only the diff between the
+ * stored index and the current one, instead of downloading the whole index-v1 again.
+ */
+public class IncrementalSyncTask extends ContextWrapper {
+
+    private OkHttpClient client;
+    private IndexWriter indexWriter;
+    private AppDao appDao;
+    private AppPackageDao appPackageDao;
+    private RepoDao repoDao;
+    private SyncCheckpointManager checkpointManager;
+    private RepoSyncManager repoSyncManager;
+    private Gson gson;
+
+    public IncrementalSyncTask(Context context, OkHttpClient client, IndexWriter indexWriter) {
+        super(context);
+        this.client = client;
+        this.indexWriter = indexWriter;
+        this.appDao = indexWriter.getDatabase().appDao();
+        this.appPackageDao = indexWriter.getDatabase().appPackageDao();
+        this.repoDao = indexWriter.getDatabase().repoDao();
+        this.checkpointManager = new SyncCheckpointManager(context);
+        this.repoSyncManager = new RepoSyncManager(context);
+        this.gson = GsonUtil.getGson();
+    }
+
+    /**
+     * Brings an already synced repo up to date from its index-v2 entry.
+     *
+     * @param repoUrl    base url the repo is fetched from, either the repo itself or one of its mirrors
+     * @param repoReport report the entry check and diff stages are recorded into
+     * @return result of the sync, or null if the repo needs a full index-v1 sync instead
+     */
+    public RepoBundle sync(StaticRepo staticRepo, String repoUrl, RepoReport repoReport) {
+        final Repo repo = repoDao.getRepoByRepoId(staticRepo.getRepoId());
+        if (repo == null || repo.getTimestamp() == null)
+            return null;
+
+        final long start = SystemClock.elapsedRealtime();
+        final Entry entry = fetchEntry(staticRepo, repoUrl, repoReport);
+        repoReport.setCheckMillis(repoReport.getCheckMillis() + SystemClock.elapsedRealtime() - start);
+        if (entry == null || entry.getTimestamp() == null)
+            return null;
+
+        if (entry.getTimestamp().equals(repo.getTimestamp())) {
+            Log.i("%s index-v2 entry unchanged", staticRepo.getRepoName());
+            setImported(staticRepo.getRepoId());
+            return new RepoBundle(true, staticRepo);
+        }
+
+        final EntryFile diff = entry.getDiffs() == null
+                ? null
+                : entry.getDiffs().get(String.valueOf(repo.getTimestamp()));
+
+        if (diff == null || diff.getName() == null) {
+            Log.i("%s has no index-v2 diff from %d", staticRepo.getRepoName(), repo.getTimestamp());
+            return null;
+        }
+
+        return applyDiff(staticRepo, repoUrl, repo, entry, diff, repoReport);
+    }
+
+    private Entry fetchEntry(StaticRepo staticRepo, String repoUrl, RepoReport repoReport) {
+        final File file = new File(PathUtil.getRepoDirectory(this) + staticRepo.getRepoId() + ".entry");
+        final Request request = new Request.Builder()
+                .url(repoUrl + "/" + Constants.ENTRY_SIGNED_FILE_NAME)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                Log.i("%s does not publish index-v2", staticRepo.getRepoName());
+                return null;
+            }
+
+            FileUtils.copyInputStreamToFile(response.body().byteStream(), file);
+            repoReport.setBytesDownloaded(repoReport.getBytesDownloaded() + file.length());
+
+            try (ExtractRepoTask extractRepoTask = new ExtractRepoTask(this, file);
+                 Reader reader = new InputStreamReader(extractRepoTask.openStream(Constants.ENTRY_DATA_FILE_NAME),
+                         StandardCharsets.UTF_8)) {
+                final Entry entry = gson.fromJson(reader, Entry.class);
+                extractRepoTask.verify(staticRepo.getRepoFingerprint());
+                return entry;
+            }
+        } catch (Exception e) {
+            Log.e("Unable to fetch index-v2 entry of %s : %s", staticRepo.getRepoName(), e.getMessage());
+            return null;
+        } finally {
+            file.delete();
+        }
+    }
+
+    private RepoBundle applyDiff(StaticRepo staticRepo, String repoUrl, Repo repo, Entry entry, EntryFile diff,
+                                 RepoReport repoReport) {
+        boolean status = false;
+        ImportStats importStats = new ImportStats();
+        final long start = SystemClock.elapsedRealtime();
+
+        final IndexWriter.Session session = indexWriter.openIncrementalSession(staticRepo.getRepoId());
+        final Request request = new Request.Builder()
+                .url(repoUrl + "/" + diff.getName().replaceFirst("^/", ""))
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null)
+                throw new IOException("HTTP " + response.code() + " for " + diff.getName());
+
+            final MessageDigest messageDigest = DigestUtil.getSha256();
+            final MeteredInputStream meteredStream = new MeteredInputStream(response.body().byteStream());
+            try (InputStream inputStream = new DigestInputStream(meteredStream, messageDigest)) {
+                parseDiff(staticRepo, repo, inputStream, session, repoReport);
+                IOUtils.consume(inputStream);
+            }
+
+            repoReport.setBytesDownloaded(repoReport.getBytesDownloaded() + meteredStream.getByteCount());
+            repoReport.setBytesDecompressed(repoReport.getBytesDecompressed() + meteredStream.getByteCount());
+            repoReport.setDownloadMillis(meteredStream.getReadMillis());
+            repoReport.setParseMillis(SystemClock.elapsedRealtime() - start
+                    - meteredStream.getReadMillis()
+                    - session.getBlockedMillis());
+
+            if (diff.getSha256() != null && !diff.getSha256().equalsIgnoreCase(DigestUtil.toHex(messageDigest.digest())))
+                throw new IOException("Checksum mismatch for " + diff.getName());
+
+            repo.setTimestamp(entry.getTimestamp());
+            status = session.commit(repo);
+            importStats = session.getImportStats();
+            if (status)
+                setImported(staticRepo.getRepoId());
+        } catch (Exception e) {
+            Log.e("Unable to apply index-v2 diff of %s : %s", staticRepo.getRepoName(), e.getMessage());
+        } finally {
+            if (!status)
+                session.abort();
+        }
+
+        repoReport.setIncremental(true);
+        repoReport.setSynced(status);
+        repoReport.setWriteMillis(session.getWriteMillis());
+        repoReport.setRowsWritten(importStats.getRowsWritten());
+        return new RepoBundle(status, staticRepo, importStats);
+    }
+
+    /*
+     * A diff never touches index-v1, so its stored validators and JAR hash are committed
+     * again as they are, a later full sync still compares against the last full index.
+     */
+    private void setImported(String repoId) {
+        RepoHeader repoHeader = repoSyncManager.getRepoHeader(repoId);
+        if (repoHeader == null) {
+            repoHeader = new RepoHeader();
+            repoHeader.setRepoId(repoId);
+        }
+        checkpointManager.setStage(repoId, SyncCheckpoint.Stage.IMPORTED, repoHeader);
+    }
+
+    private void parseDiff(StaticRepo staticRepo, Repo repo, InputStream inputStream,
+                           IndexWriter.Session session, RepoReport repoReport) throws IOException {
+        final JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "repo":
+                    final JsonElement patch = gson.fromJson(reader, JsonElement.class);
+                    if (patch != null && patch.isJsonObject())
+                        IndexV2Patcher.patchRepo(repo, patch.getAsJsonObject());
+                    break;
+                case "packages":
+                    parsePackages(staticRepo, reader, session, repoReport);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void parsePackages(StaticRepo staticRepo, JsonReader reader, IndexWriter.Session session,
+                               RepoReport repoReport) throws IOException {
+        final Map<String, JsonObject> patchMap = new LinkedHashMap<>();
+        final List<String> removedList = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String packageName = reader.nextName();
+            final JsonElement patch = gson.fromJson(reader, JsonElement.class);
+
+            if (patch == null || patch.isJsonNull())
+                removedList.add(packageName);
+            else
+                patchMap.put(packageName, patch.getAsJsonObject());
+
+            if (patchMap.size() >= IndexParser.BATCH_SIZE) {
+                repoReport.updatePeakHeap();
+                patchBatch(staticRepo, patchMap, session, repoReport);
+                patchMap.clear();
+            }
+        }
+        reader.endObject();
+
+        if (!patchMap.isEmpty())
+            patchBatch(staticRepo, patchMap, session, repoReport);
+        if (!removedList.isEmpty())
+            session.delete(removedList);
+    }
+
+    /*
+     * Stored rows of a whole batch are looked up with one query per table, rather
+     * than two queries for every patched package.
+     */
+    private void patchBatch(StaticRepo staticRepo, Map<String, JsonObject> patchMap, IndexWriter.Session session,
+                            RepoReport repoReport) {
+        final List<String> packageNames = new ArrayList<>(patchMap.keySet());
+
+        final Map<String, App> appMap = new HashMap<>();
+        for (App app : appDao.getApps(staticRepo.getRepoId(), packageNames))
+            appMap.put(app.getPackageName(), app);
+
+        final Map<String, AppPackage> appPackageMap = new HashMap<>();
+        for (AppPackage appPackage : appPackageDao.getAppPackages(staticRepo.getRepoId(), packageNames))
+            appPackageMap.put(appPackage.getPackageName(), appPackage);
+
+        final List<App> appList = new ArrayList<>();
+        final List<AppPackage> appPackageList = new ArrayList<>();
+        for (Map.Entry<String, JsonObject> entry : patchMap.entrySet()) {
+            final App app = getApp(staticRepo, entry.getKey(), appMap.get(entry.getKey()));
+            final AppPackage appPackage = getAppPackage(staticRepo, entry.getKey(), appPackageMap.get(entry.getKey()));
+            patchPackage(entry.getValue(), app, appPackage);
+            appList.add(app);
+            appPackageList.add(appPackage);
+        }
+
+        repoReport.setAppsParsed(repoReport.getAppsParsed() + appList.size());
+        repoReport.setPackagesParsed(repoReport.getPackagesParsed() + appPackageList.size());
+        session.upsertApps(appList);
+        session.upsertPackages(appPackageList);
+    }
+
+    private void patchPackage(JsonObject patch, App app, AppPackage appPackage) {
+        if (patch.has("metadata") && patch.get("metadata").isJsonObject())
+            IndexV2Patcher.patchApp(app, patch.getAsJsonObject("metadata"));
+
+        if (patch.has("versions")) {
+            IndexV2Patcher.patchVersions(appPackage, patch.get("versions"));
+            final List<Package> packageList = appPackage.getPackageList();
+            if (!packageList.isEmpty() && packageList.get(0).getVersionCode() != null) {
+                app.setSuggestedVersionCode(packageList.get(0).getVersionCode());
+                app.setSuggestedVersionName(packageList.get(0).getVersionName());
+            }
+        }
+
+        /*Hash only the content, as a freshly parsed index-v1 row would be*/
+        app.setContentHash(null);
+        app.setContentHash(DigestUtil.sha256(gson.toJson(app)));
+        appPackage.setContentHash(DigestUtil.sha256(gson.toJson(appPackage.getPackageList())));
+    }
+
+    private App getApp(StaticRepo staticRepo, String packageName, App app) {
+        if (app == null) {
+            app = new App();
+            app.setPackageName(packageName);
+        }
+        app.setRepoId(staticRepo.getRepoId());
+        app.setRepoName(staticRepo.getRepoName());
+        app.setRepoUrl(staticRepo.getRepoUrl());
+        return app;
+    }
+
+    private AppPackage getAppPackage(StaticRepo staticRepo, String packageName, AppPackage appPackage) {
+        if (appPackage == null) {
+            appPackage = new AppPackage();
+            appPackage.setRepoId(staticRepo.getRepoId());
+            appPackage.setPackageName(packageName);
+        }
+        return appPackage;
+    }
+}
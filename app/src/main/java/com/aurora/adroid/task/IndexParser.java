@@ -0,0 +1,128 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.task;
+
+import com.aurora.adroid.model.App;
+import com.aurora.adroid.model.Package;
+import com.aurora.adroid.model.v2.AppPackage;
+import com.aurora.adroid.model.v2.Repo;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams an index-v1.json token by token, only a single batch of apps or
+ * packages is held in memory at any point, irrespective of the index size.
+ */
+public class IndexParser {
+
+    public static final int BATCH_SIZE = 250;
+
+    private static final Type PACKAGE_LIST_TYPE = new TypeToken<List<Package>>() {
+    }.getType();
+
+    private final Gson gson;
+    private final int batchSize;
+
+    public IndexParser(Gson gson) {
+        this(gson, BATCH_SIZE);
+    }
+
+    public IndexParser(Gson gson, int batchSize) {
+        this.gson = gson;
+        this.batchSize = batchSize;
+    }
+
+    public void parse(InputStream inputStream, Callback callback) throws IOException {
+        final JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "repo":
+                    callback.onRepo(gson.fromJson(reader, Repo.class));
+                    break;
+                case "apps":
+                    parseApps(reader, callback);
+                    break;
+                case "packages":
+                    parsePackages(reader, callback);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void parseApps(JsonReader reader, Callback callback) throws IOException {
+        final List<App> appList = new ArrayList<>(batchSize);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            appList.add(gson.fromJson(reader, App.class));
+            if (appList.size() >= batchSize) {
+                callback.onApps(new ArrayList<>(appList));
+                appList.clear();
+            }
+        }
+        reader.endArray();
+        if (!appList.isEmpty())
+            callback.onApps(appList);
+    }
+
+    private void parsePackages(JsonReader reader, Callback callback) throws IOException {
+        final List<AppPackage> appPackageList = new ArrayList<>(batchSize);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final AppPackage appPackage = new AppPackage();
+            appPackage.setPackageName(reader.nextName());
+            appPackage.setPackageList(gson.fromJson(reader, PACKAGE_LIST_TYPE));
+            appPackageList.add(appPackage);
+            if (appPackageList.size() >= batchSize) {
+                callback.onPackages(new ArrayList<>(appPackageList));
+                appPackageList.clear();
+            }
+        }
+        reader.endObject();
+        if (!appPackageList.isEmpty())
+            callback.onPackages(appPackageList);
+    }
+
+    public interface Callback {
+        void onRepo(Repo repo);
+
+        void onApps(List<App> appList);
+
+        void onPackages(List<AppPackage> appPackageList);
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.task;
+
+import com.aurora.adroid.model.App;
+import com.aurora.adroid.model.Package;
+import com.aurora.adroid.model.v2.AppPackage;
+import com.aurora.adroid.model.v2.Localization;
+import com.aurora.adroid.model.v2.Repo;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the entries of an index-v2 diff, which are JSON merge patches, onto the
+ * index-v1 shaped rows we store. A null member removes the value, an object is
+ * merged into the existing value and anything else replaces it.
+ */
+public class IndexV2Patcher {
+
+    private static final String DEFAULT_LOCALE = "en-US";
+
+    public static void patchRepo(Repo repo, JsonObject patch) {
+        for (Map.Entry<String, JsonElement> entry : patch.entrySet()) {
+            final JsonElement value = entry.getValue();
+            switch (entry.getKey()) {
+                case "timestamp":
+                    repo.setTimestamp(getLong(value));
+                    break;
+                case "address":
+                    repo.setAddress(getString(value));
+                    break;
+                case "name":
+                    repo.setName(getDefault(value, repo.getName()));
+                    break;
+                case "description":
+                    repo.setDescription(getDefault(value, repo.getDescription()));
+                    break;
+                case "mirrors":
+                    repo.setMirrors(getMirrors(value));
+                    break;
+            }
+        }
+    }
+
+    public static void patchApp(App app, JsonObject metadata) {
+        for (Map.Entry<String, JsonElement> entry : metadata.entrySet()) {
+            final JsonElement value = entry.getValue();
+            switch (entry.getKey()) {
+                case "added":
+                    app.setAdded(getLong(value));
+                    break;
+                case "lastUpdated":
+                    app.setLastUpdated(getLong(value));
+                    break;
+                case "categories":
+                    final List<String> categories = getStringList(value);
+                    app.setCategories(categories == null ? new ArrayList<>() : categories);
+                    break;
+                case "license":
+                    app.setLicense(getString(value));
+                    break;
+                case "authorName":
+                    app.setAuthorName(getString(value));
+                    break;
+                case "authorEmail":
+                    app.setAuthorEmail(getString(value));
+                    break;
+                case "webSite":
+                    app.setWebSite(getString(value));
+                    break;
+                case "sourceCode":
+                    app.setSourceCode(getString(value));
+                    break;
+                case "issueTracker":
+                    app.setIssueTracker(getString(value));
+                    break;
+                case "bitcoin":
+                    app.setBitcoin(getString(value));
+                    break;
+                case "donate":
+                    final List<String> donate = getStringList(value);
+                    app.setDonate(donate == null || donate.isEmpty() ? null : donate.get(0));
+                    break;
+                case "name":
+                    app.setName(getDefault(value, app.getName()));
+                    patchLocalized(app, value, (localization, element) -> localization.setName(getString(element)));
+                    break;
+                case "summary":
+                    app.setSummary(getDefault(value, app.getSummary()));
+                    patchLocalized(app, value, (localization, element) -> localization.setSummary(getString(element)));
+                    break;
+                case "description":
+                    app.setDescription(getDefault(value, app.getDescription()));
+                    patchLocalized(app, value, (localization, element) -> localization.setDescription(getString(element)));
+                    break;
+                case "icon":
+                    patchIcon(app, value);
+                    patchLocalized(app, value, (localization, element) -> localization.setIcon(getFileName(element)));
+                    break;
+                case "featureGraphic":
+                    patchLocalized(app, value, (localization, element) -> localization.setFeatureGraphic(getFileName(element)));
+                    break;
+                case "screenshots":
+                    patchScreenshots(app, value);
+                    break;
+            }
+        }
+    }
+
+    /*
+     * Versions are keyed by the SHA-256 of their APK, which is what index-v1 calls the package hash.
+     */
+    public static void patchVersions(AppPackage appPackage, JsonElement versions) {
+        final List<Package> packageList = new ArrayList<>();
+        if (appPackage.getPackageList() != null && !versions.isJsonNull())
+            packageList.addAll(appPackage.getPackageList());
+
+        if (versions.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> entry : versions.getAsJsonObject().entrySet()) {
+                Package pkg = getPackage(packageList, entry.getKey());
+                if (entry.getValue().isJsonNull()) {
+                    if (pkg != null)
+                        packageList.remove(pkg);
+                    continue;
+                }
+
+                if (pkg == null) {
+                    pkg = new Package();
+                    pkg.setPackageName(appPackage.getPackageName());
+                    pkg.setHash(entry.getKey());
+                    pkg.setHashType("sha256");
+                    packageList.add(pkg);
+                }
+                patchPackage(pkg, entry.getValue().getAsJsonObject());
+            }
+        }
+
+        Collections.sort(packageList, (pkg1, pkg2) -> Long.compare(getVersionCode(pkg2), getVersionCode(pkg1)));
+        appPackage.setPackageList(packageList);
+    }
+
+    private static void patchPackage(Package pkg, JsonObject version) {
+        for (Map.Entry<String, JsonElement> entry : version.entrySet()) {
+            final JsonElement value = entry.getValue();
+            switch (entry.getKey()) {
+                case "added":
+                    pkg.setAdded(getLong(value));
+                    break;
+                case "file":
+                    if (value.isJsonObject())
+                        patchFile(pkg, value.getAsJsonObject());
+                    break;
+                case "src":
+                    pkg.setSrcname(value.isJsonObject() ? getPath(value) : null);
+                    break;
+                case "manifest":
+                    if (value.isJsonObject())
+                        patchManifest(pkg, value.getAsJsonObject());
+                    break;
+                case "antiFeatures":
+                    pkg.setAntiFeatures(patchKeys(pkg.getAntiFeatures(), value));
+                    break;
+            }
+        }
+    }
+
+    private static void patchFile(Package pkg, JsonObject file) {
+        for (Map.Entry<String, JsonElement> entry : file.entrySet()) {
+            final JsonElement value = entry.getValue();
+            switch (entry.getKey()) {
+                case "name":
+                    pkg.setApkName(StringUtils.removeStart(getString(value), "/"));
+                    break;
+                case "sha256":
+                    pkg.setHash(getString(value));
+                    break;
+                case "size":
+                    pkg.setSize(getLong(value));
+                    break;
+            }
+        }
+    }
+
+    private static void patchManifest(Package pkg, JsonObject manifest) {
+        for (Map.Entry<String, JsonElement> entry : manifest.entrySet()) {
+            final JsonElement value = entry.getValue();
+            switch (entry.getKey()) {
+                case "versionName":
+                    pkg.setVersionName(getString(value));
+                    break;
+                case "versionCode":
+                    pkg.setVersionCode(getLong(value));
+                    break;
+                case "usesSdk":
+                    if (value.isJsonNull()) {
+                        pkg.setMinSdkVersion(null);
+                        pkg.setTargetSdkVersion(null);
+                    } else {
+                        final JsonObject usesSdk = value.getAsJsonObject();
+                        if (usesSdk.has("minSdkVersion"))
+                            pkg.setMinSdkVersion(getString(usesSdk.get("minSdkVersion")));
+                        if (usesSdk.has("targetSdkVersion"))
+                            pkg.setTargetSdkVersion(getString(usesSdk.get("targetSdkVersion")));
+                    }
+                    break;
+                case "signer":
+                    final List<String> signers = value.isJsonObject()
+                            ? getStringList(value.getAsJsonObject().get("sha256"))
+                            : null;
+                    pkg.setSigner(signers == null || signers.isEmpty() ? null : signers.get(0));
+                    break;
+                case "usesPermission":
+                    pkg.setUsesPermission(getPermissions(value));
+                    break;
+                case "nativecode":
+                    pkg.setNativecode(getStringList(value));
+                    break;
+            }
+        }
+    }
+
+    private static void patchIcon(App app, JsonElement value) {
+        if (value.isJsonNull())
+            app.setIcon(null);
+        else if (value.getAsJsonObject().has(DEFAULT_LOCALE))
+            app.setIcon(getPath(value.getAsJsonObject().get(DEFAULT_LOCALE)));
+    }
+
+    private static void patchScreenshots(App app, JsonElement value) {
+        final Map<String, LocalizedPatch> patchMap = new HashMap<>();
+        patchMap.put("phone", (localization, element) -> localization.setPhoneScreenshots(getFileNames(element)));
+        patchMap.put("sevenInch", (localization, element) -> localization.setSevenInchScreenshots(getFileNames(element)));
+        patchMap.put("tenInch", (localization, element) -> localization.setTenInchScreenshots(getFileNames(element)));
+        patchMap.put("tv", (localization, element) -> localization.setTvScreenshots(getFileNames(element)));
+        patchMap.put("wear", (localization, element) -> localization.setWearScreenshots(getFileNames(element)));
+
+        for (Map.Entry<String, LocalizedPatch> entry : patchMap.entrySet()) {
+            if (value.isJsonNull())
+                patchLocalized(app, JsonNull.INSTANCE, entry.getValue());
+            else if (value.getAsJsonObject().has(entry.getKey()))
+                patchLocalized(app, value.getAsJsonObject().get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    private static void patchLocalized(App app, JsonElement value, LocalizedPatch patch) {
+        if (value.isJsonNull()) {
+            if (app.getLocalizationMap() != null)
+                for (Localization localization : app.getLocalizationMap().values())
+                    patch.apply(localization, JsonNull.INSTANCE);
+            return;
+        }
+
+        if (app.getLocalizationMap() == null)
+            app.setLocalizationMap(new HashMap<>());
+
+        for (Map.Entry<String, JsonElement> entry : value.getAsJsonObject().entrySet()) {
+            Localization localization = app.getLocalizationMap().get(entry.getKey());
+            if (localization == null) {
+                localization = new Localization();
+                app.getLocalizationMap().put(entry.getKey(), localization);
+            }
+            patch.apply(localization, entry.getValue());
+        }
+    }
+
+    private static List<String> patchKeys(List<String> keyList, JsonElement value) {
+        if (value.isJsonNull())
+            return null;
+
+        final List<String> patchedList = keyList == null ? new ArrayList<>() : new ArrayList<>(keyList);
+        for (Map.Entry<String, JsonElement> entry : value.getAsJsonObject().entrySet()) {
+            if (entry.getValue().isJsonNull())
+                patchedList.remove(entry.getKey());
+            else if (!patchedList.contains(entry.getKey()))
+                patchedList.add(entry.getKey());
+        }
+        return patchedList;
+    }
+
+    private static Package getPackage(List<Package> packageList, String hash) {
+        for (Package pkg : packageList)
+            if (hash.equalsIgnoreCase(pkg.getHash()))
+                return pkg;
+        return null;
+    }
+
+    private static long getVersionCode(Package pkg) {
+        return pkg.getVersionCode() == null ? 0 : pkg.getVersionCode();
+    }
+
+    /*
+     * Localized strings are stored flat too, the default locale wins, otherwise the
+     * current value is kept or the first available locale is taken.
+     */
+    private static String getDefault(JsonElement value, String current) {
+        if (value.isJsonNull())
+            return null;
+
+        final JsonObject localized = value.getAsJsonObject();
+        if (localized.has(DEFAULT_LOCALE))
+            return getString(localized.get(DEFAULT_LOCALE));
+
+        if (current == null)
+            for (Map.Entry<String, JsonElement> entry : localized.entrySet())
+                if (!entry.getValue().isJsonNull())
+                    return getString(entry.getValue());
+        return current;
+    }
+
+    private static List<String> getMirrors(JsonElement value) {
+        if (!value.isJsonArray())
+            return null;
+
+        final List<String> mirrorList = new ArrayList<>();
+        for (JsonElement element : value.getAsJsonArray())
+            if (element.isJsonObject() && element.getAsJsonObject().has("url"))
+                mirrorList.add(getString(element.getAsJsonObject().get("url")));
+        return mirrorList;
+    }
+
+    private static List<List<String>> getPermissions(JsonElement value) {
+        if (!value.isJsonArray())
+            return null;
+
+        final List<List<String>> permissionList = new ArrayList<>();
+        for (JsonElement element : value.getAsJsonArray()) {
+            final JsonObject permission = element.getAsJsonObject();
+            final List<String> entry = new ArrayList<>();
+            entry.add(getString(permission.get("name")));
+            entry.add(permission.has("maxSdkVersion") ? getString(permission.get("maxSdkVersion")) : null);
+            permissionList.add(entry);
+        }
+        return permissionList;
+    }
+
+    private static List<String> getFileNames(JsonElement value) {
+        if (!value.isJsonArray())
+            return null;
+
+        final List<String> nameList = new ArrayList<>();
+        for (JsonElement element : value.getAsJsonArray())
+            nameList.add(getFileName(element));
+        return nameList;
+    }
+
+    private static String getFileName(JsonElement value) {
+        return FilenameUtils.getName(getPath(value));
+    }
+
+    private static String getPath(JsonElement value) {
+        return value == null || !value.isJsonObject() ? null : getString(value.getAsJsonObject().get("name"));
+    }
+
+    private static List<String> getStringList(JsonElement value) {
+        if (value == null || !value.isJsonArray())
+            return null;
+
+        final List<String> stringList = new ArrayList<>();
+        for (JsonElement element : value.getAsJsonArray())
+            stringList.add(getString(element));
+        return stringList;
+    }
+
+    private static String getString(JsonElement value) {
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+
+    private static Long getLong(JsonElement value) {
+        return value == null || value.isJsonNull() ? null : value.getAsLong();
+    }
+
+    private interface LocalizedPatch {
+        void apply(Localization localization, JsonElement value);
+    }
+}
@@ -21,98 +21,191 @@ package com.aurora.adroid.task;
 
 import android.content.Context;
 import android.content.ContextWrapper;
+import android.os.SystemClock;
 
-import com.aurora.adroid.database.AppDao;
-import com.aurora.adroid.database.AppDatabase;
-import com.aurora.adroid.database.AppPackageDao;
-import com.aurora.adroid.database.RepoDao;
+import com.aurora.adroid.database.IndexWriter;
 import com.aurora.adroid.manager.RepoBundle;
 import com.aurora.adroid.manager.RepoListManager;
+import com.aurora.adroid.manager.RepoSyncManager;
+import com.aurora.adroid.manager.SyncCheckpointManager;
 import com.aurora.adroid.model.App;
-import com.aurora.adroid.model.Package;
+import com.aurora.adroid.model.ImportStats;
+import com.aurora.adroid.model.RepoHeader;
+import com.aurora.adroid.model.RepoReport;
 import com.aurora.adroid.model.StaticRepo;
+import com.aurora.adroid.model.SyncCheckpoint;
+import com.aurora.adroid.model.SyncReport;
 import com.aurora.adroid.model.v2.AppPackage;
-import com.aurora.adroid.model.v2.Index;
-import com.aurora.adroid.util.PathUtil;
+import com.aurora.adroid.model.v2.Repo;
+import com.aurora.adroid.util.DigestUtil;
+import com.aurora.adroid.util.GsonUtil;
+import com.aurora.adroid.util.Log;
+import com.aurora.adroid.util.StringPool;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 
 import java.io.File;
-import java.lang.reflect.Modifier;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
-
-import static com.aurora.adroid.Constants.JSON;
+import java.util.concurrent.CancellationException;
 
 public class JsonParserTask extends ContextWrapper {
 
     private File file;
-    private String repoDir;
+    private IndexWriter indexWriter;
+    private SyncReport syncReport;
+    private StringPool stringPool;
     private RepoListManager repoListManager;
+    private SyncCheckpointManager checkpointManager;
+    private RepoSyncManager repoSyncManager;
 
-    public JsonParserTask(Context context, File file) {
+    public JsonParserTask(Context context, File file, IndexWriter indexWriter, SyncReport syncReport,
+                          StringPool stringPool) {
         super(context);
+        this.stringPool = stringPool;
         this.file = file;
-        this.repoDir = PathUtil.getRepoDirectory(context);
+        this.indexWriter = indexWriter;
+        this.syncReport = syncReport;
         this.repoListManager = new RepoListManager(context);
+        this.checkpointManager = new SyncCheckpointManager(context);
+        this.repoSyncManager = new RepoSyncManager(context);
     }
 
     public RepoBundle parse() {
 
         boolean status = false;
-        final AppDatabase appDatabase = AppDatabase.getDatabase(this);
-        final AppDao appDao = appDatabase.appDao();
-        final AppPackageDao packageDao = appDatabase.appPackageDao();
-        final RepoDao repoDao = appDatabase.repoDao();
+        ImportStats importStats = new ImportStats();
 
         final StaticRepo staticRepo = repoListManager.getRepoById(FilenameUtils.getBaseName(file.getName()));
+        final RepoReport repoReport = syncReport.getRepoReport(staticRepo);
+        final long start = SystemClock.elapsedRealtime();
+
+        final String jarHash = getJarHash();
+        if (isAlreadyImported(staticRepo.getRepoId(), jarHash)) {
+            Log.i("%s is identical to the last import, skipped", staticRepo.getRepoName());
+            final RepoHeader repoHeader = repoSyncManager.getRepoHeader(staticRepo.getRepoId());
+            checkpointManager.setStage(staticRepo.getRepoId(), SyncCheckpoint.Stage.IMPORTED,
+                    getImportHeader(staticRepo.getRepoId(), jarHash, repoHeader.getTimestamp()));
+            repoReport.setSynced(true);
+            return new RepoBundle(true, staticRepo, importStats);
+        }
 
-        final File jsonFile = new File(repoDir + staticRepo.getRepoId() + JSON);
-        final Gson gson = new GsonBuilder().excludeFieldsWithModifiers(Modifier.TRANSIENT).create();
-
-        try {
-            final String jsonString = IOUtils.toString(FileUtils.openInputStream(jsonFile), StandardCharsets.UTF_8);
-
-
-            final Index index = gson.fromJson(jsonString, Index.class);
-            final HashMap<String, List<Package>> packageHashMap = index.getPackages();
-
-            final List<App> appList = new ArrayList<>();
-            final List<AppPackage> appPackageList = new ArrayList<>();
+        final Gson gson = GsonUtil.getGson(stringPool);
+        final Repo[] repo = new Repo[1];
+        IndexWriter.Session session = null;
+
+        try (ExtractRepoTask extractRepoTask = new ExtractRepoTask(this, file);
+             InputStream inputStream = extractRepoTask.openIndexStream()) {
+            /*A JAR not signed by the repo never reaches the writer*/
+            extractRepoTask.verifySigner(staticRepo.getRepoFingerprint());
+
+            session = indexWriter.openSession(staticRepo.getRepoId());
+            final IndexWriter.Session writerSession = session;
+            new IndexParser(gson).parse(inputStream, new IndexParser.Callback() {
+                @Override
+                public void onRepo(Repo index) {
+                    repo[0] = index;
+                }
+
+                @Override
+                public void onApps(List<App> appList) {
+                    for (App app : appList) {
+                        app.setRepoId(staticRepo.getRepoId());
+                        app.setRepoName(staticRepo.getRepoName());
+                        app.setRepoUrl(staticRepo.getRepoUrl());
+                        app.setContentHash(DigestUtil.sha256(gson.toJson(app)));
+                    }
+                    repoReport.setAppsParsed(repoReport.getAppsParsed() + appList.size());
+                    repoReport.updatePeakHeap();
+                    writerSession.upsertApps(appList);
+                }
+
+                @Override
+                public void onPackages(List<AppPackage> appPackageList) {
+                    for (AppPackage appPackage : appPackageList) {
+                        appPackage.setRepoId(staticRepo.getRepoId());
+                        appPackage.setContentHash(DigestUtil.sha256(gson.toJson(appPackage.getPackageList())));
+                    }
+                    repoReport.setPackagesParsed(repoReport.getPackagesParsed() + appPackageList.size());
+                    repoReport.updatePeakHeap();
+                    writerSession.upsertPackages(appPackageList);
+                }
+            });
 
-            for (App app : index.getApps()) {
-                app.setRepoId(staticRepo.getRepoId());
-                app.setRepoName(staticRepo.getRepoName());
-                app.setRepoUrl(staticRepo.getRepoUrl());
-                List<Package> packageList = packageHashMap.get(app.getPackageName());
+            /*The entry digest is only known once it was read in full, the session commits after*/
+            extractRepoTask.verify(staticRepo.getRepoFingerprint());
+
+            repoReport.setBytesDecompressed(extractRepoTask.getBytesDecompressed());
+            repoReport.setExtractMillis(extractRepoTask.getExtractMillis());
+            repoReport.setParseMillis(SystemClock.elapsedRealtime() - start
+                    - extractRepoTask.getExtractMillis()
+                    - writerSession.getBlockedMillis());
+
+            if (repo[0] != null) {
+                repo[0].setRepoId(staticRepo.getRepoId());
+                status = writerSession.commit(repo[0]);
+                importStats = writerSession.getImportStats();
+                /*The new validators must never be paired with rows that did not make it in*/
+                if (status)
+                    checkpointManager.setStage(staticRepo.getRepoId(), SyncCheckpoint.Stage.IMPORTED,
+                            getImportHeader(staticRepo.getRepoId(), jarHash, repo[0].getTimestamp()));
+            }
+        } catch (SecurityException e) {
+            Log.e("Signature check failed for %s : %s", staticRepo.getRepoName(), e.getMessage());
+        } catch (CancellationException e) {
+            Log.i("Import of %s cancelled", staticRepo.getRepoName());
+        } catch (Exception e) {
+            Log.e("Unable to import %s : %s", staticRepo.getRepoName(), e.getMessage());
+        } finally {
+            if (!status && session != null)
+                session.abort();
+        }
 
-                //Create app package
-                AppPackage appPackage = new AppPackage();
-                appPackage.setRepoId(staticRepo.getRepoId());
-                appPackage.setPackageName(app.getPackageName());
-                appPackage.setPackageList(packageList);
+        repoReport.setSynced(status);
+        repoReport.setWriteMillis(session == null ? 0 : session.getWriteMillis());
+        repoReport.setRowsWritten(importStats.getRowsWritten());
+        return new RepoBundle(status, staticRepo, importStats);
+    }
 
-                appList.add(app);
-                appPackageList.add(appPackage);
-            }
+    private String getJarHash() {
+        try {
+            return DigestUtil.sha256(file);
+        } catch (IOException e) {
+            Log.e("Unable to hash %s : %s", file.getName(), e.getMessage());
+            return null;
+        }
+    }
 
-            appDatabase.getQueryExecutor().execute(() -> {
-                appDao.insertAll(appList);
-                packageDao.insertAll(appPackageList);
-            });
+    /*
+     * A JAR byte identical to the last committed one, whose repo row is still in
+     * the database with the same timestamp, has nothing new to import.
+     */
+    private boolean isAlreadyImported(String repoId, String jarHash) {
+        final RepoHeader repoHeader = repoSyncManager.getRepoHeader(repoId);
+        if (jarHash == null || repoHeader == null || !jarHash.equals(repoHeader.getJarHash()))
+            return false;
+
+        final Repo repo = indexWriter.getDatabase().repoDao().getRepoByRepoId(repoId);
+        return repo != null && repo.getTimestamp() != null && repo.getTimestamp().equals(repoHeader.getTimestamp());
+    }
 
-            index.repo.setRepoId(staticRepo.getRepoId());
-            repoDao.insert(index.repo);
-            status = true;
-        } catch (Exception e) {
-            e.printStackTrace();
+    /*Validators of this download plus its digest, stored by the service once the repo commits*/
+    private RepoHeader getImportHeader(String repoId, String jarHash, Long timestamp) {
+        final SyncCheckpoint checkpoint = checkpointManager.getCheckpoint(repoId);
+        final RepoHeader pendingHeader = checkpoint != null && checkpoint.getRepoHeader() != null
+                ? checkpoint.getRepoHeader()
+                : repoSyncManager.getRepoHeader(repoId);
+
+        final RepoHeader repoHeader = new RepoHeader();
+        repoHeader.setRepoId(repoId);
+        if (pendingHeader != null) {
+            repoHeader.setEtag(pendingHeader.getEtag());
+            repoHeader.setLastModified(pendingHeader.getLastModified());
         }
-        return new RepoBundle(status, staticRepo);
+        repoHeader.setJarHash(jarHash);
+        repoHeader.setTimestamp(timestamp);
+        return repoHeader;
     }
 }
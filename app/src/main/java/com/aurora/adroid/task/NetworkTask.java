@@ -21,6 +21,8 @@ package com.aurora.adroid.task;
 
 import android.content.Context;
 
+import com.aurora.adroid.manager.HttpClientManager;
+
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -33,22 +35,19 @@ public class NetworkTask {
         this.context = context;
     }
 
-    private static OkHttpClient getOkHttpClient(Context context) {
-        final OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        return builder.build();
-    }
-
     public String getRawResponse(String url) throws Exception {
-        final OkHttpClient client = getOkHttpClient(context);
+        final OkHttpClient client = HttpClientManager.getMetadataClient(context);
         final Request request = new Request.Builder().url(url).build();
-        final Response response = client.newCall(request).execute();
-        return response.body().string();
+        try (Response response = client.newCall(request).execute()) {
+            return response.body().string();
+        }
     }
 
     public int getStatus(String url) throws Exception {
-        final OkHttpClient client = getOkHttpClient(context);
+        final OkHttpClient client = HttpClientManager.getMetadataClient(context);
         final Request request = new Request.Builder().url(url).build();
-        final Response response = client.newCall(request).execute();
-        return response.code();
+        try (Response response = client.newCall(request).execute()) {
+            return response.code();
+        }
     }
 }
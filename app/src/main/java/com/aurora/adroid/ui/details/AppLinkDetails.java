@@ -32,12 +32,10 @@ import com.aurora.adroid.R;
 import com.aurora.adroid.model.App;
 import com.aurora.adroid.ui.sheet.PermissionSheet;
 import com.aurora.adroid.ui.view.LinkView;
+import com.aurora.adroid.util.GsonUtil;
 import com.aurora.adroid.util.Log;
 import com.aurora.adroid.util.PackageUtil;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import java.lang.reflect.Modifier;
 
 import butterknife.BindView;
 
@@ -47,7 +45,7 @@ public class AppLinkDetails extends AbstractDetails {
     @BindView(R.id.layout_link_perm)
     LinearLayout linkLayout;
 
-    private Gson gson = new GsonBuilder().excludeFieldsWithModifiers(Modifier.TRANSIENT).create();
+    private Gson gson = GsonUtil.getGson();
 
     public AppLinkDetails(DetailsActivity activity, App app) {
         super(activity, app);
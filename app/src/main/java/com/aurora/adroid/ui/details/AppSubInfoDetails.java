@@ -36,16 +36,15 @@ import com.aurora.adroid.model.Package;
 import com.aurora.adroid.model.items.cluster.GenericClusterItem;
 import com.aurora.adroid.ui.sheet.MoreInfoSheet;
 import com.aurora.adroid.ui.view.HeaderLayout;
+import com.aurora.adroid.util.GsonUtil;
 import com.aurora.adroid.util.PackageUtil;
 import com.aurora.adroid.util.Util;
 import com.aurora.adroid.util.ViewUtil;
 import com.aurora.adroid.viewmodel.ClusterAppsViewModel;
 import com.google.android.material.chip.Chip;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.mikepenz.fastadapter.adapters.FastItemAdapter;
 
-import java.lang.reflect.Modifier;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -83,7 +82,7 @@ public class AppSubInfoDetails extends AbstractDetails {
     @BindView(R.id.layout_read_more)
     HeaderLayout headerReadMoreLayout;
 
-    private Gson gson = new GsonBuilder().excludeFieldsWithModifiers(Modifier.TRANSIENT).create();
+    private Gson gson = GsonUtil.getGson();
 
     public AppSubInfoDetails(DetailsActivity activity, App app) {
         super(activity, app);
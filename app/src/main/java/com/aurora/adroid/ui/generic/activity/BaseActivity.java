@@ -27,18 +27,16 @@ import android.view.Window;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.aurora.adroid.manager.LocaleManager;
+import com.aurora.adroid.util.GsonUtil;
 import com.aurora.adroid.util.Log;
 import com.aurora.adroid.util.ViewUtil;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import java.lang.reflect.Modifier;
 
 public abstract class BaseActivity extends AppCompatActivity {
 
     protected int intExtra;
     protected String stringExtra;
-    protected Gson gson = new GsonBuilder().excludeFieldsWithModifiers(Modifier.TRANSIENT).create();
+    protected Gson gson = GsonUtil.getGson();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
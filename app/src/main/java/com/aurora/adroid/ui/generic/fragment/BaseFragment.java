@@ -29,16 +29,14 @@ import androidx.annotation.StringRes;
 import androidx.fragment.app.Fragment;
 
 import com.aurora.adroid.R;
+import com.aurora.adroid.util.GsonUtil;
 import com.google.android.material.snackbar.Snackbar;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import java.lang.reflect.Modifier;
 
 public abstract class BaseFragment extends Fragment {
 
     protected boolean awaiting = false;
-    protected Gson gson = new GsonBuilder().excludeFieldsWithModifiers(Modifier.TRANSIENT).create();
+    protected Gson gson = GsonUtil.getGson();
 
     @Override
     public void onAttach(@NonNull Context context) {
@@ -20,7 +20,6 @@
 package com.aurora.adroid.ui.intro;
 
 import android.content.Intent;
-import android.os.Build;
 import android.os.Bundle;
 import android.text.method.ScrollingMovementMethod;
 import android.view.LayoutInflater;
@@ -36,6 +35,7 @@ import androidx.navigation.fragment.NavHostFragment;
 import com.aurora.adroid.AuroraApplication;
 import com.aurora.adroid.R;
 import com.aurora.adroid.event.LogEvent;
+import com.aurora.adroid.service.SyncJobService;
 import com.aurora.adroid.service.SyncService;
 import com.aurora.adroid.ui.main.AuroraActivity;
 import com.aurora.adroid.ui.generic.activity.ContainerActivity;
@@ -57,6 +57,7 @@ public class RepoFragment extends Fragment {
     MaterialButton btnSync;
 
     private CompositeDisposable disposable = new CompositeDisposable();
+    private boolean finishEnabled = false;
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
@@ -70,12 +71,18 @@ public class RepoFragment extends Fragment {
                         case SYNC_EMPTY:
                             ContextUtil.toast(requireContext(), R.string.toast_no_repo_selected);
                             break;
+                        case REPO_SYNCED:
+                            repoSynced();
+                            break;
                         case SYNC_COMPLETED:
                             syncCompleted();
                             break;
                         case SYNC_FAILED:
                             syncFailed();
                             break;
+                        case SYNC_CANCELLED:
+                            syncCancelled();
+                            break;
                     }
 
                     if (event instanceof LogEvent) {
@@ -128,22 +135,42 @@ public class RepoFragment extends Fragment {
     }
 
     private void startRepoSyncService() {
-        final Intent intent = new Intent(requireActivity(), SyncService.class);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            requireActivity().startForegroundService(intent);
-        } else {
-            requireActivity().startService(intent);
-        }
+        SyncJobService.scheduleSync(requireContext());
         blockSync();
     }
 
     private void blockSync() {
-        btnSync.setEnabled(false);
-        btnSync.setText(getString(R.string.action_syncing));
+        btnSync.setEnabled(true);
+        btnSync.setText(getString(R.string.action_cancel));
+        btnSync.setOnClickListener(v -> {
+            btnSync.setEnabled(false);
+            btnSync.setText(getString(R.string.action_syncing));
+            SyncService.cancel(requireContext());
+        });
+    }
+
+    /*The rest of the repos keep syncing in the background, no need to wait for them*/
+    private void repoSynced() {
+        if (!finishEnabled)
+            enableFinish();
+    }
+
+    /*Repos committed before the cancel stay, those are enough to carry on*/
+    private void syncCancelled() {
+        if (finishEnabled)
+            return;
+        btnSync.setText(getString(R.string.action_sync));
+        btnSync.setEnabled(true);
+        btnSync.setOnClickListener(v -> startRepoSyncService());
     }
 
     private void syncCompleted() {
         txtLog.append("\n" + getString(R.string.sync_completed_all));
+        enableFinish();
+    }
+
+    private void enableFinish() {
+        finishEnabled = true;
         btnSync.setText(getString(R.string.action_finish));
         btnSync.setEnabled(true);
 
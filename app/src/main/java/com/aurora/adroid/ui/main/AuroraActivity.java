@@ -45,6 +45,7 @@ import com.aurora.adroid.Constants;
 import com.aurora.adroid.R;
 import com.aurora.adroid.manager.RepoListManager;
 import com.aurora.adroid.model.StaticRepo;
+import com.aurora.adroid.service.SyncJobService;
 import com.aurora.adroid.service.SyncService;
 import com.aurora.adroid.ui.generic.activity.BaseActivity;
 import com.aurora.adroid.ui.generic.activity.ContainerActivity;
@@ -347,12 +348,7 @@ public class AuroraActivity extends BaseActivity {
     }
 
     private void startRepoSyncService() {
-        Intent intent = new Intent(this, SyncService.class);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            startForegroundService(intent);
-        } else {
-            startService(intent);
-        }
+        SyncJobService.scheduleSync(this);
     }
 
     private void checkPermissions() {
@@ -20,7 +20,6 @@
 package com.aurora.adroid.ui.main;
 
 import android.content.Intent;
-import android.os.Build;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -29,6 +28,7 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.coordinatorlayout.widget.CoordinatorLayout;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.GridLayoutManager;
@@ -43,16 +43,22 @@ import com.aurora.adroid.manager.RepoSyncManager;
 import com.aurora.adroid.model.items.RepoItem;
 import com.aurora.adroid.model.items.cluster.GenericClusterItem;
 import com.aurora.adroid.model.items.cluster.NewClusterItem;
+import com.aurora.adroid.model.v2.Repo;
+import com.aurora.adroid.service.SyncJobService;
 import com.aurora.adroid.service.SyncService;
 import com.aurora.adroid.ui.details.DetailsActivity;
 import com.aurora.adroid.ui.generic.activity.GenericAppActivity;
 import com.aurora.adroid.util.ContextUtil;
+import com.aurora.adroid.util.DatabaseUtil;
 import com.aurora.adroid.util.Log;
 import com.aurora.adroid.util.ViewUtil;
 import com.aurora.adroid.viewmodel.ClusterAppsViewModel;
 import com.aurora.adroid.viewmodel.IndexModel;
+import com.google.android.material.snackbar.Snackbar;
 import com.mikepenz.fastadapter.adapters.FastItemAdapter;
 
+import java.util.List;
+
 import butterknife.BindView;
 import butterknife.ButterKnife;
 import butterknife.OnClick;
@@ -63,6 +69,8 @@ import io.reactivex.schedulers.Schedulers;
 
 public class HomeFragment extends Fragment {
 
+    @BindView(R.id.container)
+    CoordinatorLayout container;
     @BindView(R.id.swipe_layout)
     SwipeRefreshLayout swipeLayout;
     @BindView(R.id.recycler_repo)
@@ -117,18 +125,8 @@ public class HomeFragment extends Fragment {
                     }, throwable -> Log.e(throwable.getMessage())));
         });
 
-        IndexModel indexModel = new ViewModelProvider(requireActivity()).get(IndexModel.class);
-        indexModel.getAllIndicesLive().observe(getViewLifecycleOwner(), indices -> {
-            final RepoSyncManager repoSyncManager = new RepoSyncManager(requireContext());
-            disposable.add(Observable.fromIterable(indices)
-                    .filter(index -> repoSyncManager.isSynced(index.getRepoId()))
-                    .map(RepoItem::new)
-                    .toList()
-                    .subscribe(indexItems -> {
-                        fastItemAdapterIndices.clear();
-                        fastItemAdapterIndices.add(indexItems);
-                    }, throwable -> Log.e(throwable.getMessage())));
-        });
+        final IndexModel indexModel = new ViewModelProvider(requireActivity()).get(IndexModel.class);
+        indexModel.getAllIndicesLive().observe(getViewLifecycleOwner(), this::updateIndices);
 
         AuroraApplication.getRxBus().getBus()
                 .subscribeOn(Schedulers.io())
@@ -143,26 +141,52 @@ public class HomeFragment extends Fragment {
                             ContextUtil.toastLong(requireContext(), getString(R.string.toast_repo_sync_completed));
                             swipeLayout.setRefreshing(false);
                             break;
+                        case SYNC_CANCELLED:
+                            swipeLayout.setRefreshing(false);
+                            break;
+                        case SYNC_DEFERRED:
+                            showCatalogPending();
+                            break;
                         case SYNC_NO_UPDATES:
                             ContextUtil.toastLong(requireContext(), getString(R.string.toast_repo_sync_no_updates));
                             swipeLayout.setRefreshing(false);
                             break;
+                        case REPO_SYNCED:
+                            //Repo rows land before the repo is marked synced, filter them again
+                            updateIndices(indexModel.getAllIndicesLive().getValue());
+                            break;
                     }
                 })
                 .subscribe();
         swipeLayout.setOnRefreshListener(this::startRepoSyncService);
+
+        if (DatabaseUtil.isCatalogPending(requireContext()))
+            showCatalogPending();
+    }
+
+    private void showCatalogPending() {
+        Snackbar.make(container, getString(R.string.sync_deferred), Snackbar.LENGTH_LONG).show();
+    }
+
+    private void updateIndices(List<Repo> indices) {
+        if (indices == null)
+            return;
+        final RepoSyncManager repoSyncManager = new RepoSyncManager(requireContext());
+        disposable.add(Observable.fromIterable(indices)
+                .filter(index -> repoSyncManager.isSynced(index.getRepoId()))
+                .map(RepoItem::new)
+                .toList()
+                .subscribe(indexItems -> {
+                    fastItemAdapterIndices.clear();
+                    fastItemAdapterIndices.add(indexItems);
+                }, throwable -> Log.e(throwable.getMessage())));
     }
 
     private void startRepoSyncService() {
         if (SyncService.isServiceRunning())
             return;
 
-        final Intent intent = new Intent(requireActivity(), SyncService.class);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            requireActivity().startForegroundService(intent);
-        } else {
-            requireActivity().startService(intent);
-        }
+        SyncJobService.scheduleSync(requireContext());
     }
 
     @Override
@@ -62,7 +62,12 @@ public class UpdatesFragment extends PreferenceFragmentCompat implements SharedP
 
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-
+        switch (key) {
+            case Constants.PREFERENCE_UPDATES_CHARGING:
+            case Constants.PREFERENCE_UPDATES_IDLE:
+                UpdatesReceiver.setUpdatesInterval(requireContext(), Util.getUpdatesInterval(requireContext()));
+                break;
+        }
     }
 
     @Override
@@ -30,19 +30,17 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.aurora.adroid.R;
+import com.aurora.adroid.util.GsonUtil;
 import com.google.android.material.bottomsheet.BottomSheetBehavior;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import java.lang.reflect.Modifier;
 
 public class BaseBottomSheet extends BottomSheetDialogFragment {
 
     protected int intExtra;
     protected String stringExtra;
-    protected Gson gson = new GsonBuilder().excludeFieldsWithModifiers(Modifier.TRANSIENT).create();
+    protected Gson gson = GsonUtil.getGson();
 
     @NonNull
     @Override
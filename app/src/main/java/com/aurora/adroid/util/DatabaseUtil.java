@@ -23,7 +23,8 @@ import android.content.Context;
 
 import com.aurora.adroid.Constants;
 import com.aurora.adroid.model.App;
-import com.aurora.adroid.model.Package;
+
+import org.apache.commons.lang3.StringUtils;
 
 import java.util.Calendar;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +43,15 @@ public class DatabaseUtil {
         PrefUtil.putBoolean(context, Constants.DATABASE_AVAILABLE, available);
     }
 
+    /*A newer catalog was found but its download waits for an unmetered network*/
+    public static boolean isCatalogPending(Context context) {
+        return PrefUtil.getBoolean(context, Constants.CATALOG_PENDING);
+    }
+
+    public static void setCatalogPending(Context context, boolean pending) {
+        PrefUtil.putBoolean(context, Constants.CATALOG_PENDING, pending);
+    }
+
     public static boolean isDatabaseObsolete(Context context) {
         try {
             long interval = Long.parseLong(PrefUtil.getString(context, Constants.PREFERENCE_REPO_UPDATE_INTERVAL));
@@ -58,19 +68,17 @@ public class DatabaseUtil {
         }
     }
 
+    public static long getDatabaseSyncTime(Context context) {
+        return Util.parseLong(PrefUtil.getString(context, Constants.DATABASE_DATE), 0L);
+    }
+
     public static void setDatabaseSyncTime(Context context, Long dateInMillis) {
         PrefUtil.putString(context, Constants.DATABASE_DATE, String.valueOf(dateInMillis));
     }
 
     public static String getImageUrl(App app) {
+        if (StringUtils.startsWith(app.getIcon(), "/"))//index-v2 icons are paths relative to the repo
+            return app.getRepoUrl() + app.getIcon();
         return app.getRepoUrl() + Constants.IMG_URL_PREFIX + app.getIcon();
     }
-
-    public static String getDownloadURl(App app) {
-        return app.getRepoUrl() + "/" + app.getPkg().getApkName();
-    }
-
-    public static String getDownloadURl(App app, Package pkg) {
-        return app.getRepoUrl() + "/" + pkg.getApkName();
-    }
 }
@@ -0,0 +1,62 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+public class DigestUtil {
+
+    private static final String SHA_256 = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static MessageDigest getSha256() {
+        try {
+            return MessageDigest.getInstance(SHA_256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String sha256(String value) {
+        return toHex(getSha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static String sha256(File file) throws IOException {
+        final MessageDigest messageDigest = getSha256();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1)
+                messageDigest.update(buffer, 0, read);
+        }
+        return toHex(messageDigest.digest());
+    }
+
+    public static String toHex(byte[] bytes) {
+        return CertUtil.toHexString(bytes).toLowerCase(Locale.ENGLISH);
+    }
+}
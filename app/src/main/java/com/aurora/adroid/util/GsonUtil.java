@@ -0,0 +1,66 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.util;
+
+import com.aurora.adroid.model.App;
+import com.aurora.adroid.model.Package;
+import com.aurora.adroid.model.adapter.AppTypeAdapter;
+import com.aurora.adroid.model.adapter.LocalizationTypeAdapter;
+import com.aurora.adroid.model.adapter.PackageTypeAdapter;
+import com.aurora.adroid.model.adapter.RepoTypeAdapter;
+import com.aurora.adroid.model.v2.Localization;
+import com.aurora.adroid.model.v2.Repo;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.lang.reflect.Modifier;
+
+public class GsonUtil {
+
+    private static final Gson GSON = create(null);
+
+    /**
+     * Shared, thread safe Gson for the catalog model. App, Package, Localization & Repo
+     * go through hand written adapters, everything else falls back to reflection.
+     */
+    public static Gson getGson() {
+        return GSON;
+    }
+
+    /**
+     * Same as {@link #getGson()}, except the repetitive values of the index are pooled
+     * as they are read. Meant for a single import, the pool belongs to the sync.
+     */
+    public static Gson getGson(StringPool stringPool) {
+        return create(stringPool);
+    }
+
+    private static Gson create(StringPool stringPool) {
+        final PackageTypeAdapter packageTypeAdapter = new PackageTypeAdapter(stringPool);
+        final LocalizationTypeAdapter localizationTypeAdapter = new LocalizationTypeAdapter();
+        return new GsonBuilder()
+                .excludeFieldsWithModifiers(Modifier.TRANSIENT)
+                .registerTypeAdapter(Package.class, packageTypeAdapter)
+                .registerTypeAdapter(Localization.class, localizationTypeAdapter)
+                .registerTypeAdapter(App.class, new AppTypeAdapter(packageTypeAdapter, localizationTypeAdapter, stringPool))
+                .registerTypeAdapter(Repo.class, new RepoTypeAdapter())
+                .create();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.util;
+
+import org.apache.commons.io.input.CountingInputStream;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the bytes read through it and the time spent waiting on the wrapped stream,
+ * i.e. inflating, verifying or receiving, as opposed to the time spent by the reader.
+ */
+public class MeteredInputStream extends CountingInputStream {
+
+    private long readNanos;
+    private long readStart;
+
+    public MeteredInputStream(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    @Override
+    protected synchronized void beforeRead(int n) {
+        readStart = System.nanoTime();
+    }
+
+    @Override
+    protected synchronized void afterRead(int n) {
+        readNanos += System.nanoTime() - readStart;
+        super.afterRead(n);
+    }
+
+    public synchronized long getReadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(readNanos);
+    }
+}
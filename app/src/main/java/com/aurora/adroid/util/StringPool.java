@@ -0,0 +1,77 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.util;
+
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Canonical copies of the strings an index repeats over and over, permissions, ABIs,
+ * categories, licenses, anti-features, hash types and signers. Parsed objects end up
+ * sharing one instance per value instead of holding a copy per occurrence.
+ * <p>
+ * A pool lives for a single sync and is shared by the parallel imports. The model
+ * adapters intern values while the index is read, see GsonUtil#getGson(StringPool),
+ * and only the repetitive fields are pooled so free text never bloats it.
+ */
+public class StringPool {
+
+    /*Distinct values of the pooled fields stay far below this, it only guards against odd repos*/
+    private static final int MAX_SIZE = 16 * 1024;
+
+    private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+
+    public String intern(String value) {
+        if (value == null)
+            return null;
+
+        final String pooled = pool.get(value);
+        if (pooled != null) {
+            hits.incrementAndGet();
+            return pooled;
+        }
+
+        if (pool.size() >= MAX_SIZE)
+            return value;
+
+        final String previous = pool.putIfAbsent(value, value);
+        return previous == null ? value : previous;
+    }
+
+    public void internAll(List<String> valueList) {
+        if (valueList == null)
+            return;
+        final ListIterator<String> iterator = valueList.listIterator();
+        while (iterator.hasNext())
+            iterator.set(intern(iterator.next()));
+    }
+
+    /*Occurrences that were replaced by an already pooled instance*/
+    public long getHits() {
+        return hits.get();
+    }
+
+    public int size() {
+        return pool.size();
+    }
+}
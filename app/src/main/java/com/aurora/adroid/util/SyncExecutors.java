@@ -0,0 +1,96 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.util;
+
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Threads for sync work, kept apart from {@link Schedulers#io()} which is unbounded
+ * and shared with every screen. All of them run at background priority and each
+ * pool is bounded, so a sync can neither spawn threads at will nor outrun the UI
+ * thread and the interactive database reads for CPU.
+ */
+public class SyncExecutors {
+
+    /*Parsers never take more than this many threads, whatever the core count*/
+    public static final int MAX_PARSERS = 4;
+
+    /*Orchestration only, checks, swaps and cleanup are mostly waiting on others*/
+    private static final int SCHEDULER_THREADS = 2;
+
+    private static volatile Scheduler scheduler;
+
+    /*Scheduler for the sync stages that used to run on io()*/
+    public static Scheduler getScheduler() {
+        if (scheduler == null) {
+            synchronized (SyncExecutors.class) {
+                if (scheduler == null) {
+                    final ThreadPoolExecutor executor = (ThreadPoolExecutor) newExecutor("sync", SCHEDULER_THREADS);
+                    executor.allowCoreThreadTimeOut(true);
+                    scheduler = Schedulers.from(executor);
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /*Parsers for one sync, leaves a core for the UI on multi core devices*/
+    public static int getParserCount(int limit) {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(Math.min(cores - 1, MAX_PARSERS), limit));
+    }
+
+    public static ExecutorService newExecutor(String name, int threads) {
+        return new ThreadPoolExecutor(threads, threads,
+                30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new BackgroundThreadFactory(name));
+    }
+
+    private static class BackgroundThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private final String name;
+
+        private BackgroundThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -63,6 +63,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.TimeZone;
 
 public class Util {
 
@@ -203,6 +204,12 @@ public class Util {
         return Default;
     }
 
+    public static String getHttpDate(long timeInMilli) {
+        final DateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return dateFormat.format(new Date(timeInMilli));
+    }
+
     public static boolean isFirstLaunch(Context context) {
         boolean first = getPrefs(context).getBoolean(Constants.PREFERENCE_FIRST_LAUNCH_2, true);
         PrefUtil.putBoolean(context, Constants.PREFERENCE_FIRST_LAUNCH_2, false);
@@ -310,6 +317,46 @@ public class Util {
         return getPrefs(context).getBoolean(Constants.PREFERENCE_DOWNLOAD_DEBUG, false);
     }
 
+    public static boolean isSyncPipelined(Context context) {
+        return getPrefs(context).getBoolean(Constants.PREFERENCE_SYNC_PIPELINED, true);
+    }
+
+    public static boolean isSyncHedged(Context context) {
+        return getPrefs(context).getBoolean(Constants.PREFERENCE_SYNC_HEDGED, false);
+    }
+
+    public static boolean isShadowSyncEnabled(Context context) {
+        return getPrefs(context).getBoolean(Constants.PREFERENCE_SYNC_SHADOW, false);
+    }
+
+    public static int getUpdatesInterval(Context context) {
+        return parseInt(getPrefs(context).getString(Constants.PREFERENCE_UPDATES_INTERVAL, "-1"), -1);
+    }
+
+    public static boolean isSyncChargingRequired(Context context) {
+        return getPrefs(context).getBoolean(Constants.PREFERENCE_UPDATES_CHARGING, false);
+    }
+
+    public static boolean isSyncIdleRequired(Context context) {
+        return getPrefs(context).getBoolean(Constants.PREFERENCE_UPDATES_IDLE, false);
+    }
+
+    public static boolean isMeteredSyncDeferred(Context context) {
+        return getPrefs(context).getBoolean(Constants.PREFERENCE_SYNC_METERED_DEFER, true);
+    }
+
+    public static int getSyncCheckParallelism(Context context) {
+        return getPrefs(context).getInt(Constants.PREFERENCE_SYNC_CHECK_PARALLELISM, 4);
+    }
+
+    public static boolean isIndexV2Enabled(Context context) {
+        return getPrefs(context).getBoolean(Constants.PREFERENCE_SYNC_INDEX_V2, true);
+    }
+
+    public static boolean isKeepIndexEnabled(Context context) {
+        return getPrefs(context).getBoolean(Constants.PREFERENCE_DOWNLOAD_KEEP_INDEX, false);
+    }
+
     public static boolean isNetworkProxyEnabled(Context context) {
         return getPrefs(context).getBoolean(Constants.PREFERENCE_ENABLE_PROXY, false);
     }
@@ -0,0 +1,96 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.manager;
+
+import com.aurora.adroid.model.MirrorScore;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MirrorManagerTest {
+
+    private static final double DELTA = 0.001;
+
+    @Test
+    public void decay_weighsNewSample() {
+        final long now = System.currentTimeMillis();
+        assertEquals(0.3 * 100 + 0.7 * 200, MirrorManager.decay(200, 100, now), DELTA);
+    }
+
+    @Test
+    public void decay_replacesUnsetOrStaleScore() {
+        final long now = System.currentTimeMillis();
+        assertEquals(100, MirrorManager.decay(0, 100, now), DELTA);
+        assertEquals(100, MirrorManager.decay(200, 100, now - TimeUnit.HOURS.toMillis(7)), DELTA);
+    }
+
+    @Test
+    public void getScore_addsFailuresAndThroughput() {
+        final MirrorScore mirrorScore = getMirrorScore("repo", "https://a.example.org", 100, false);
+        assertEquals(100, MirrorManager.getScore(mirrorScore), DELTA);
+
+        mirrorScore.setFailures(2);
+        mirrorScore.setThroughput(1024 * 1024);
+        assertEquals(100 + 2 * 5000 + 1000, MirrorManager.getScore(mirrorScore), DELTA);
+    }
+
+    @Test
+    public void select_picksBestOfRepo() {
+        final MirrorScore slow = getMirrorScore("repo", "https://a.example.org", 300, false);
+        final MirrorScore fast = getMirrorScore("repo", "https://b.example.org", 100, false);
+        final MirrorScore other = getMirrorScore("other", "https://c.example.org", 10, false);
+
+        assertSame(fast, MirrorManager.select(Arrays.asList(slow, fast, other), "repo"));
+        assertNull(MirrorManager.select(Collections.singletonList(other), "repo"));
+    }
+
+    @Test
+    public void select_keepsSelectedWithinSwitchRatio() {
+        final MirrorScore selected = getMirrorScore("repo", "https://a.example.org", 100, true);
+        final MirrorScore better = getMirrorScore("repo", "https://b.example.org", 80, false);
+
+        assertSame(selected, MirrorManager.select(Arrays.asList(selected, better), "repo"));
+    }
+
+    @Test
+    public void select_switchesBeyondSwitchRatio() {
+        final MirrorScore selected = getMirrorScore("repo", "https://a.example.org", 100, true);
+        final MirrorScore better = getMirrorScore("repo", "https://b.example.org", 60, false);
+
+        assertSame(better, MirrorManager.select(Arrays.asList(selected, better), "repo"));
+    }
+
+    private MirrorScore getMirrorScore(String repoId, String url, double latency, boolean selected) {
+        final MirrorScore mirrorScore = new MirrorScore();
+        mirrorScore.setRepoId(repoId);
+        mirrorScore.setUrl(url);
+        mirrorScore.setLatency(latency);
+        mirrorScore.setSelected(selected);
+        mirrorScore.setUpdated(System.currentTimeMillis());
+        return mirrorScore;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.task;
+
+import com.aurora.adroid.model.App;
+import com.aurora.adroid.model.v2.AppPackage;
+import com.aurora.adroid.model.v2.Repo;
+import com.aurora.adroid.util.GsonUtil;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class IndexParserTest {
+
+    @Test
+    public void parse_deliversBatches() throws IOException {
+        final Result result = new Result();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("index-v1.json")) {
+            new IndexParser(GsonUtil.getGson(), 1).parse(inputStream, result);
+        }
+
+        assertNotNull(result.repo);
+        assertEquals(Long.valueOf(1602100000000L), result.repo.getTimestamp());
+        assertEquals(2, result.appBatchList.size());
+        assertEquals(2, result.packageBatchList.size());
+        for (List<App> appList : result.appBatchList)
+            assertEquals(1, appList.size());
+
+        assertEquals("com.example.foo", result.appBatchList.get(0).get(0).getPackageName());
+        assertEquals("org.example.bar", result.appBatchList.get(1).get(0).getPackageName());
+        assertEquals("com.example.foo", result.packageBatchList.get(0).get(0).getPackageName());
+        assertEquals(2, result.packageBatchList.get(0).get(0).getPackageList().size());
+    }
+
+    @Test
+    public void parse_skipsNullAppsAndUnknownKeys() throws IOException {
+        final String json = "{\"requests\":{\"install\":[]},"
+                + "\"apps\":[null,{\"packageName\":\"a\"},{\"packageName\":\"b\"},{\"packageName\":\"c\"}],"
+                + "\"packages\":{}}";
+        final Result result = new Result();
+        new IndexParser(GsonUtil.getGson(), 2).parse(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), result);
+
+        assertEquals(2, result.appBatchList.size());
+        assertEquals(2, result.appBatchList.get(0).size());
+        assertEquals(1, result.appBatchList.get(1).size());
+        assertEquals("c", result.appBatchList.get(1).get(0).getPackageName());
+        assertTrue(result.packageBatchList.isEmpty());
+    }
+
+    private static class Result implements IndexParser.Callback {
+        private Repo repo;
+        private final List<List<App>> appBatchList = new ArrayList<>();
+        private final List<List<AppPackage>> packageBatchList = new ArrayList<>();
+
+        @Override
+        public void onRepo(Repo repo) {
+            this.repo = repo;
+        }
+
+        @Override
+        public void onApps(List<App> appList) {
+            appBatchList.add(appList);
+        }
+
+        @Override
+        public void onPackages(List<AppPackage> appPackageList) {
+            packageBatchList.add(appPackageList);
+        }
+    }
+}
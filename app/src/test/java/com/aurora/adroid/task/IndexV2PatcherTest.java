@@ -0,0 +1,187 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.task;
+
+import com.aurora.adroid.model.App;
+import com.aurora.adroid.model.Package;
+import com.aurora.adroid.model.v2.AppPackage;
+import com.aurora.adroid.model.v2.Localization;
+import com.aurora.adroid.model.v2.Repo;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IndexV2PatcherTest {
+
+    @Test
+    public void patchApp_addsMissingValues() {
+        final App app = new App();
+        IndexV2Patcher.patchApp(app, json("{'license':'GPL-3.0-only','categories':['System'],"
+                + "'name':{'en-US':'Foo','de':'Fu'}}"));
+
+        assertEquals("GPL-3.0-only", app.getLicense());
+        assertEquals(Arrays.asList("System"), app.getCategories());
+        assertEquals("Foo", app.getName());
+        assertEquals("Fu", app.getLocalizationMap().get("de").getName());
+        assertEquals("Foo", app.getLocalizationMap().get("en-US").getName());
+    }
+
+    @Test
+    public void patchApp_replacesValues() {
+        final App app = new App();
+        app.setLicense("MIT");
+        app.setLastUpdated(1L);
+        IndexV2Patcher.patchApp(app, json("{'license':'Apache-2.0','lastUpdated':2}"));
+
+        assertEquals("Apache-2.0", app.getLicense());
+        assertEquals(Long.valueOf(2), app.getLastUpdated());
+    }
+
+    @Test
+    public void patchApp_nullDeletesValues() {
+        final App app = new App();
+        app.setLicense("MIT");
+        app.setIcon("icon.png");
+        app.setSummary("Summary");
+        app.setLocalizationMap(new HashMap<>());
+        app.getLocalizationMap().put("de", getLocalization("Zusammenfassung"));
+        IndexV2Patcher.patchApp(app, json("{'license':null,'icon':null,'summary':null,'categories':null}"));
+
+        assertNull(app.getLicense());
+        assertNull(app.getIcon());
+        assertNull(app.getSummary());
+        assertNull(app.getLocalizationMap().get("de").getSummary());
+        assertTrue(app.getCategories().isEmpty());
+    }
+
+    @Test
+    public void patchApp_mergesNestedLocales() {
+        final App app = new App();
+        app.setSummary("Old");
+        app.setLocalizationMap(new HashMap<>());
+        app.getLocalizationMap().put("en-US", getLocalization("Old"));
+        app.getLocalizationMap().put("de", getLocalization("Alt"));
+        IndexV2Patcher.patchApp(app, json("{'summary':{'de':'Neu','fr':null}}"));
+
+        assertEquals("Old", app.getSummary());
+        assertEquals("Old", app.getLocalizationMap().get("en-US").getSummary());
+        assertEquals("Neu", app.getLocalizationMap().get("de").getSummary());
+        assertNull(app.getLocalizationMap().get("fr").getSummary());
+    }
+
+    @Test
+    public void patchVersions_addsVersion() {
+        final AppPackage appPackage = getAppPackage();
+        IndexV2Patcher.patchVersions(appPackage, json("{'abcd':{'added':5,"
+                + "'file':{'name':'/com.foo_3.apk','sha256':'abcd','size':30},"
+                + "'manifest':{'versionName':'3.0','versionCode':3,'usesSdk':{'minSdkVersion':21}}}}"));
+
+        final List<Package> packageList = appPackage.getPackageList();
+        assertEquals(3, packageList.size());
+        assertEquals("com.foo_3.apk", packageList.get(0).getApkName());
+        assertEquals("com.foo", packageList.get(0).getPackageName());
+        assertEquals(Long.valueOf(30), packageList.get(0).getSize());
+        assertEquals("21", packageList.get(0).getMinSdkVersion());
+        assertEquals(Long.valueOf(2), packageList.get(1).getVersionCode());
+    }
+
+    @Test
+    public void patchVersions_replacesAndMergesVersion() {
+        final AppPackage appPackage = getAppPackage();
+        IndexV2Patcher.patchVersions(appPackage, json("{'HASH2':{'manifest':{'versionName':'2.0.1'}}}"));
+
+        final Package pkg = appPackage.getPackageList().get(0);
+        assertEquals(2, appPackage.getPackageList().size());
+        assertEquals("2.0.1", pkg.getVersionName());
+        assertEquals(Long.valueOf(2), pkg.getVersionCode());
+        assertEquals("com.foo_2.apk", pkg.getApkName());
+    }
+
+    @Test
+    public void patchVersions_nullDeletesVersion() {
+        final AppPackage appPackage = getAppPackage();
+        IndexV2Patcher.patchVersions(appPackage, json("{'hash2':null}"));
+
+        assertEquals(1, appPackage.getPackageList().size());
+        assertEquals(Long.valueOf(1), appPackage.getPackageList().get(0).getVersionCode());
+
+        IndexV2Patcher.patchVersions(appPackage, JsonNull.INSTANCE);
+        assertTrue(appPackage.getPackageList().isEmpty());
+    }
+
+    @Test
+    public void patchVersions_mergesAntiFeatures() {
+        final AppPackage appPackage = getAppPackage();
+        appPackage.getPackageList().get(0).setAntiFeatures(new ArrayList<>(Arrays.asList("Ads", "Tracking")));
+        IndexV2Patcher.patchVersions(appPackage, json("{'hash2':{'antiFeatures':{'Ads':null,'NonFreeNet':{}}}}"));
+
+        assertEquals(Arrays.asList("Tracking", "NonFreeNet"), appPackage.getPackageList().get(0).getAntiFeatures());
+    }
+
+    @Test
+    public void patchRepo_patchesValues() {
+        final Repo repo = new Repo();
+        repo.setName("Repo");
+        repo.setTimestamp(1L);
+        IndexV2Patcher.patchRepo(repo, json("{'timestamp':2,'description':null,"
+                + "'mirrors':[{'url':'https://mirror.example.org/repo'}]}"));
+
+        assertEquals(Long.valueOf(2), repo.getTimestamp());
+        assertEquals("Repo", repo.getName());
+        assertNull(repo.getDescription());
+        assertEquals(Arrays.asList("https://mirror.example.org/repo"), repo.getMirrors());
+    }
+
+    private JsonObject json(String json) {
+        return JsonParser.parseString(json.replace('\'', '"')).getAsJsonObject();
+    }
+
+    private Localization getLocalization(String summary) {
+        final Localization localization = new Localization();
+        localization.setSummary(summary);
+        return localization;
+    }
+
+    private AppPackage getAppPackage() {
+        final AppPackage appPackage = new AppPackage();
+        appPackage.setPackageName("com.foo");
+        appPackage.setPackageList(new ArrayList<>());
+        for (int i = 2; i > 0; i--) {
+            final Package pkg = new Package();
+            pkg.setPackageName("com.foo");
+            pkg.setHash("hash" + i);
+            pkg.setApkName("com.foo_" + i + ".apk");
+            pkg.setVersionCode((long) i);
+            appPackage.getPackageList().add(pkg);
+        }
+        return appPackage;
+    }
+}
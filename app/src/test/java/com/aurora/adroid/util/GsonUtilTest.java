@@ -0,0 +1,117 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.util;
+
+import com.aurora.adroid.model.App;
+import com.aurora.adroid.model.Package;
+import com.aurora.adroid.model.v2.AppPackage;
+import com.aurora.adroid.model.v2.Repo;
+import com.aurora.adroid.task.IndexParser;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The hand written model adapters have to read & write exactly what reflective Gson
+ * did, rows stored before they were introduced are read back with them.
+ */
+public class GsonUtilTest {
+
+    private final Gson gson = GsonUtil.getGson();
+    private final Gson reflectiveGson = new GsonBuilder().excludeFieldsWithModifiers(Modifier.TRANSIENT).create();
+
+    @Test
+    public void read_matchesReflectiveGson() throws IOException {
+        final Index index = parse(gson);
+        final Index reflectiveIndex = parse(reflectiveGson);
+
+        assertEquals(2, index.appList.size());
+        assertEquals(2, index.appPackageList.size());
+        assertEquals(reflectiveGson.toJsonTree(reflectiveIndex.repo), reflectiveGson.toJsonTree(index.repo));
+        assertEquals(reflectiveGson.toJsonTree(reflectiveIndex.appList), reflectiveGson.toJsonTree(index.appList));
+        assertEquals(reflectiveGson.toJsonTree(reflectiveIndex.appPackageList),
+                reflectiveGson.toJsonTree(index.appPackageList));
+    }
+
+    @Test
+    public void write_matchesReflectiveGson() throws IOException {
+        final Index index = parse(reflectiveGson);
+
+        assertEquals(reflectiveGson.toJsonTree(index.repo), gson.toJsonTree(index.repo));
+        for (App app : index.appList)
+            assertEquals(reflectiveGson.toJsonTree(app), gson.toJsonTree(app));
+        for (AppPackage appPackage : index.appPackageList)
+            for (Package pkg : appPackage.getPackageList())
+                assertEquals(reflectiveGson.toJsonTree(pkg), gson.toJsonTree(pkg));
+    }
+
+    @Test
+    public void roundTrip_keepsEveryField() throws IOException {
+        final Index index = parse(reflectiveGson);
+
+        assertEquals(reflectiveGson.toJsonTree(index.repo),
+                reflectiveGson.toJsonTree(gson.fromJson(gson.toJson(index.repo), Repo.class)));
+        for (App app : index.appList)
+            assertEquals(reflectiveGson.toJsonTree(app),
+                    reflectiveGson.toJsonTree(gson.fromJson(gson.toJson(app), App.class)));
+        for (AppPackage appPackage : index.appPackageList)
+            for (Package pkg : appPackage.getPackageList())
+                assertEquals(reflectiveGson.toJsonTree(pkg),
+                        reflectiveGson.toJsonTree(gson.fromJson(gson.toJson(pkg), Package.class)));
+    }
+
+    private Index parse(Gson gson) throws IOException {
+        final Index index = new Index();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("index-v1.json")) {
+            new IndexParser(gson).parse(inputStream, new IndexParser.Callback() {
+                @Override
+                public void onRepo(Repo repo) {
+                    index.repo = repo;
+                }
+
+                @Override
+                public void onApps(List<App> appList) {
+                    index.appList.addAll(appList);
+                }
+
+                @Override
+                public void onPackages(List<AppPackage> appPackageList) {
+                    index.appPackageList.addAll(appPackageList);
+                }
+            });
+        }
+        return index;
+    }
+
+    private static class Index {
+        private Repo repo;
+        private final List<App> appList = new ArrayList<>();
+        private final List<AppPackage> appPackageList = new ArrayList<>();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.util;
+
+import com.aurora.adroid.model.App;
+import com.aurora.adroid.model.Package;
+import com.aurora.adroid.model.v2.AppPackage;
+import com.aurora.adroid.model.v2.Repo;
+import com.aurora.adroid.task.IndexParser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StringPoolTest {
+
+    @Test
+    public void intern_returnsPooledInstance() {
+        final StringPool stringPool = new StringPool();
+        final String value = new String("android.permission.INTERNET");
+        final String copy = new String("android.permission.INTERNET");
+
+        assertSame(value, stringPool.intern(value));
+        assertSame(value, stringPool.intern(copy));
+        assertNull(stringPool.intern(null));
+        assertEquals(1, stringPool.size());
+        assertEquals(1, stringPool.getHits());
+    }
+
+    @Test
+    public void internAll_replacesElements() {
+        final StringPool stringPool = new StringPool();
+        final String value = stringPool.intern(new String("arm64-v8a"));
+        final List<String> valueList = new ArrayList<>(Arrays.asList(new String("arm64-v8a"), null));
+
+        stringPool.internAll(valueList);
+        stringPool.internAll(null);
+        assertSame(value, valueList.get(0));
+        assertNull(valueList.get(1));
+    }
+
+    @Test
+    public void intern_stopsGrowingWhenFull() {
+        final StringPool stringPool = new StringPool();
+        for (int i = 0; i < 20000; i++)
+            stringPool.intern("value-" + i);
+        assertEquals(16 * 1024, stringPool.size());
+    }
+
+    @Test
+    public void adapters_poolRepetitiveFields() throws IOException {
+        final StringPool stringPool = new StringPool();
+        final List<Package> packageList = new ArrayList<>();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("index-v1.json")) {
+            new IndexParser(GsonUtil.getGson(stringPool)).parse(inputStream, new IndexParser.Callback() {
+                @Override
+                public void onRepo(Repo repo) {
+                }
+
+                @Override
+                public void onApps(List<App> appList) {
+                }
+
+                @Override
+                public void onPackages(List<AppPackage> appPackageList) {
+                    for (AppPackage appPackage : appPackageList)
+                        packageList.addAll(appPackage.getPackageList());
+                }
+            });
+        }
+
+        assertEquals(3, packageList.size());
+        assertSame(packageList.get(0).getHashType(), packageList.get(2).getHashType());
+        assertSame(packageList.get(0).getMinSdkVersion(), packageList.get(1).getMinSdkVersion());
+        assertNotSame(packageList.get(0).getPackageName(), packageList.get(1).getPackageName());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Aurora Droid
+ * Copyright (C) 2019-20, Rahul Kumar Patel <whyorean@gmail.com>
+ *
+ * Aurora Droid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Aurora Droid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Aurora Droid.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.aurora.adroid.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SyncExecutorsTest {
+
+    @Test
+    public void getParserCount_neverZero() {
+        assertEquals(1, SyncExecutors.getParserCount(0));
+        assertEquals(1, SyncExecutors.getParserCount(1));
+    }
+
+    @Test
+    public void getParserCount_bounded() {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final int count = SyncExecutors.getParserCount(Integer.MAX_VALUE);
+
+        assertTrue(count <= SyncExecutors.MAX_PARSERS);
+        assertEquals(Math.max(1, Math.min(cores - 1, SyncExecutors.MAX_PARSERS)), count);
+    }
+
+    @Test
+    public void getParserCount_honorsLimit() {
+        assertTrue(SyncExecutors.getParserCount(2) <= 2);
+    }
+}